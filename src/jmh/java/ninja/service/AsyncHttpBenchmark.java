@@ -0,0 +1,140 @@
+package ninja.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ninja.util.Utils;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class AsyncHttpBenchmark { // gradle jmh -Pbench=AsyncHttpBenchmark, 對本機stub server同時查詢多次, 比較async pool(10條執行緒)阻塞呼叫與AsyncHttp的總耗時
+	private static final int THREADS = 10, DELAY = 100, PERMITS = 10; // 預設async pool大小; stub回應延遲(ms); Upstream的bulkhead
+
+	private static final byte[] BODY = "[{\"RouteName\":{\"Zh_tw\":\"307\"}}]".getBytes( StandardCharsets.UTF_8 );
+
+	@Param( { "blocking", "async" } )
+	private String mode;
+
+	@Param( { "100", "500" } )
+	private int commands;
+
+	private HttpServer server;
+
+	private ExecutorService pool;
+
+	private AnnotationConfigApplicationContext context;
+
+	private AsyncHttp http;
+
+	private String url;
+
+	@Setup
+	public void setup() throws IOException {
+		server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 0 );
+
+		server.createContext( "/", exchange -> { // 模擬上游的回應時間
+			try {
+				Thread.sleep( DELAY );
+
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+
+			exchange.sendResponseHeaders( 200, BODY.length );
+
+			try ( OutputStream output = exchange.getResponseBody() ) {
+				output.write( BODY );
+			}
+		} );
+
+		server.setExecutor( Executors.newCachedThreadPool() );
+		server.start();
+
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+		if ( "blocking".equals( mode ) ) {
+			pool = Executors.newFixedThreadPool( THREADS );
+
+		} else {
+			context = new AnnotationConfigApplicationContext( AsyncHttp.class );
+
+			http = context.getBean( AsyncHttp.class );
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if ( pool != null ) {
+			pool.shutdownNow();
+		}
+
+		if ( context != null ) {
+			context.close();
+		}
+
+		server.stop( 0 );
+	}
+
+	@Benchmark
+	public void commands() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch( commands );
+
+		if ( pool != null ) { // 每個指令佔用一條執行緒等待回應
+			for ( int i = 0; i < commands; i++ ) {
+				pool.execute( () -> {
+					try {
+						Utils.call( url );
+
+					} finally {
+						latch.countDown();
+					}
+				} );
+			}
+
+		} else { // 同時進行中的請求不超過bulkhead, 避免被拒絕; 等待回應期間不佔用執行緒
+			Semaphore permits = new Semaphore( PERMITS );
+
+			for ( int i = 0; i < commands; i++ ) {
+				permits.acquire();
+
+				CompletableFuture<String> future = http.get( url );
+
+				future.whenComplete( ( body, e ) -> {
+					permits.release();
+
+					latch.countDown();
+				} );
+			}
+		}
+
+		latch.await();
+	}
+}
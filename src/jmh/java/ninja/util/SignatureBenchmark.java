@@ -0,0 +1,79 @@
+package ninja.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 4 )
+public class SignatureBenchmark { // gradle jmh, 比較每次建立Mac與重用per-thread Mac的簽章驗證成本
+	private static final String SECRET = "8f742231b10e8888abcd99yyyzzz85a5", ALGORITHM = HmacAlgorithms.HMAC_SHA_256.toString(), TIMESTAMP = "1531420618";
+
+	private static final byte[] BASE = "v0:".getBytes( StandardCharsets.US_ASCII );
+
+	private String base, signature;
+
+	private byte[] body;
+
+	@Setup
+	public void setup() throws Exception {
+		StringBuilder body = new StringBuilder( "token=xyzz0WbapA4vBCDEFasx0q6G&team_id=T1DC2JH3J&channel_id=G8PSS9T3V&user_id=U2CERLKJA&command=%2Fbus&text=" );
+
+		for ( int i = 0; i < 20; i++ ) {
+			body.append( "%E5%85%AC%E8%BB%8A+" );
+		}
+
+		body.append( "&response_url=https%3A%2F%2Fhooks.slack.com%2Fcommands%2FT1DC2JH3J%2F397700885554%2F96rGlfmibIGlgcZRskXaIFfN" );
+
+		this.body = body.toString().getBytes( StandardCharsets.UTF_8 );
+
+		base = "v0:" + TIMESTAMP + ":" + body;
+
+		signature = Hex.encodeHexString( legacy( base ) );
+	}
+
+	@Benchmark
+	public boolean legacy() throws Exception { // 原本的作法: 每次getInstance及init, 比較hex字串
+		return Hex.encodeHexString( legacy( base ) ).equals( signature );
+	}
+
+	@Benchmark
+	public boolean reused() { // 同BaseController.digest: 重用per-thread Mac, 直接update原始body bytes, 不組字串
+		Mac mac = Signature.mac( SECRET, HmacAlgorithms.HMAC_SHA_256 );
+
+		mac.update( BASE );
+		mac.update( TIMESTAMP.getBytes( StandardCharsets.US_ASCII ) );
+		mac.update( ( byte ) ':' );
+
+		return Signature.equals( signature, mac.doFinal( body ) );
+	}
+
+	private byte[] legacy( String data ) throws Exception {
+		Mac mac = Mac.getInstance( ALGORITHM );
+
+		mac.init( new SecretKeySpec( SECRET.getBytes( StandardCharsets.UTF_8 ), ALGORITHM ) );
+
+		return mac.doFinal( data.getBytes( StandardCharsets.UTF_8 ) );
+	}
+}
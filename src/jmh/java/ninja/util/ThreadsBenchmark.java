@@ -0,0 +1,81 @@
+package ninja.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class ThreadsBenchmark { // gradle jmh -Pbench=ThreadsBenchmark, 同時送出多個會阻塞的指令, 比較10條platform thread與virtual thread的總耗時; virtual需JDK 21
+	private static final int THREADS = 10, BLOCK = 300;
+
+	@Param( { "platform", "virtual" } )
+	private String mode;
+
+	@Param( { "100", "500" } )
+	private int commands;
+
+	private ExecutorService pool;
+
+	private Executor executor;
+
+	@Setup
+	public void setup() {
+		if ( "platform".equals( mode ) ) {
+			executor = pool = Executors.newFixedThreadPool( THREADS );
+
+		} else {
+			ThreadFactory factory = Threads.virtual( "bench-" ); // 不支援時拋出例外, 此組結果不列入
+
+			executor = i -> factory.newThread( i ).start();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if ( pool != null ) {
+			pool.shutdownNow();
+		}
+	}
+
+	@Benchmark
+	public void commands() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch( commands );
+
+		for ( int i = 0; i < commands; i++ ) {
+			executor.execute( () -> {
+				try { // 模擬等待上游回應
+					Thread.sleep( BLOCK );
+
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+
+				} finally {
+					latch.countDown();
+				}
+			} );
+		}
+
+		latch.await();
+	}
+}
@@ -1,25 +1,58 @@
 package ninja;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
 
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import magic.controller.ExecuteController;
 import magic.service.AsyncExecutor;
 import magic.service.Slack;
+import ninja.consts.Pool;
 import ninja.ex.EXHandler;
+import ninja.util.CommandExecutor;
+import ninja.util.Deadline;
+import ninja.util.Threads;
 
 @SpringBootApplication
 @EnableRetry
 @Import( { ExecuteController.class, AsyncExecutor.class, Slack.class } )
-public class App implements AsyncConfigurer {
+public class App implements AsyncConfigurer, SchedulingConfigurer {
+	@Autowired
+	private Environment env;
+
+	@Autowired
+	private EXHandler handler;
+
+	private final Map<String, Executor> commands = new ConcurrentHashMap<>(); // 有設定executor.command.<指令>.size的指令專屬的pool
+
 	public static void main( String[] args ) {
 		SpringApplication.run( App.class, args );
 	}
@@ -27,15 +60,142 @@ public class App implements AsyncConfigurer {
 	@Bean
 	@Override
 	public Executor getAsyncExecutor() {
-		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		return executor( Pool.DEFAULT, 10, 100 );
+	}
 
-		executor.setCorePoolSize( 10 );
+	@Bean( Pool.SCRAPE )
+	public Executor scrape() { // 爬網頁等較慢的指令, 避免拖累一般查詢
+		return executor( Pool.SCRAPE, 4, 20 );
+	}
 
-		return executor;
+	@Bean( Pool.BULK )
+	public Executor bulk() {
+		return executor( Pool.BULK, 1, 5 );
+	}
+
+	@Bean( Pool.DATA )
+	public Executor data() {
+		return executor( Pool.DATA, 2, 50 );
+	}
+
+	@Bean
+	public PrometheusMeterRegistry prometheus() { // 加入global registry, 既有的Metrics.*都會輸出到/prometheus
+		PrometheusMeterRegistry registry = new PrometheusMeterRegistry( PrometheusConfig.DEFAULT );
+
+		Metrics.addRegistry( registry );
+
+		Stream.of( new JvmMemoryMetrics(), new JvmGcMetrics(), new JvmThreadMetrics(), new ProcessorMetrics() ).forEach( i -> i.bindTo( Metrics.globalRegistry ) );
+
+		return registry;
 	}
 
 	@Override
 	public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
-		return new EXHandler();
+		return handler;
+	}
+
+	@PreDestroy
+	private void destroy() {
+		commands.values().stream().filter( ThreadPoolTaskExecutor.class::isInstance ).forEach( i -> ( ( ThreadPoolTaskExecutor ) i ).shutdown() );
+	}
+
+	@Override
+	public void configureTasks( ScheduledTaskRegistrar registrar ) {
+		if ( !virtual() ) {
+			return;
+		}
+
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+		scheduler.setPoolSize( env.getProperty( "executor.scheduled.size", Integer.class, 10 ) );
+		scheduler.setThreadFactory( Threads.virtual( "scheduled-" ) );
+		scheduler.initialize();
+
+		registrar.setScheduler( scheduler );
+	}
+
+	private Executor executor( String name, int size, int capacity ) { // 同一workload共用一個pool, 個別指令可另設專屬的pool
+		return new CommandExecutor( pool( name, size, capacity ), this::command );
+	}
+
+	private Executor command( String command ) { // 例如executor.command.movie.size=2, 避免單一指令佔滿整個workload的pool
+		return env.containsProperty( "executor.command." + command + ".size" ) ? commands.computeIfAbsent( command, i -> pool( "command." + i, 2, 10 ) ) : null;
+	}
+
+	private Executor pool( String name, int size, int capacity ) { // 可用executor.<name>.size/capacity覆寫
+		size = env.getProperty( "executor." + name + ".size", Integer.class, size );
+
+		capacity = env.getProperty( "executor." + name + ".capacity", Integer.class, capacity );
+
+		Tags tags = Tags.of( "name", name );
+
+		int limit = size + capacity;
+
+		if ( virtual() ) {
+			return virtual( name, limit, tags );
+		}
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+		executor.setCorePoolSize( size );
+		executor.setMaxPoolSize( size );
+		executor.setQueueCapacity( capacity );
+		executor.setThreadNamePrefix( name + "-" );
+		executor.setTaskDecorator( Deadline::wrap ); // 指令的deadline跟著任務到@Async執行緒
+
+		executor.setRejectedExecutionHandler( ( r, e ) -> { // 由Advice回覆忙碌訊息
+			throw reject( name );
+		} );
+
+		Metrics.gauge( "executor.active", tags, executor, ThreadPoolTaskExecutor::getActiveCount );
+		Metrics.gauge( "executor.queued", tags, executor, i -> i.getThreadPoolExecutor().getQueue().size() );
+		Metrics.gauge( "executor.saturation", tags, executor, i -> ( i.getActiveCount() + i.getThreadPoolExecutor().getQueue().size() ) / ( double ) limit );
+
+		executor.initialize(); // 包在CommandExecutor內, 不會由Spring初始化
+
+		return executor;
+	}
+
+	private Executor virtual( String name, int limit, Tags tags ) { // 每個任務一條virtual thread, 以semaphore保留原本的容量上限
+		ThreadFactory factory = Threads.virtual( name + "-" );
+
+		Semaphore permits = new Semaphore( limit );
+
+		Metrics.gauge( "executor.active", tags, permits, i -> limit - i.availablePermits() );
+		Metrics.gauge( "executor.saturation", tags, permits, i -> ( limit - i.availablePermits() ) / ( double ) limit );
+
+		return task -> {
+			if ( !permits.tryAcquire() ) {
+				throw reject( name );
+			}
+
+			Runnable decorated = Deadline.wrap( task );
+
+			try {
+				factory.newThread( () -> {
+					try {
+						decorated.run();
+
+					} finally {
+						permits.release();
+					}
+				} ).start();
+
+			} catch ( RuntimeException | Error e ) {
+				permits.release();
+
+				throw e;
+			}
+		};
+	}
+
+	private RejectedExecutionException reject( String name ) {
+		Metrics.counter( "executor.rejected", "name", name ).increment();
+
+		return new RejectedExecutionException( "Executor busy: " + name );
+	}
+
+	private boolean virtual() { // executor.virtual=true且JDK支援時才啟用
+		return env.getProperty( "executor.virtual", Boolean.class, false ) && Threads.virtual();
 	}
 }
\ No newline at end of file
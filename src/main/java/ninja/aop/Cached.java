@@ -0,0 +1,15 @@
+package ninja.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+@Retention( RetentionPolicy.RUNTIME )
+@Target( ElementType.METHOD )
+public @interface Cached { // 指令結果的快取時間, 由CommandCache處理
+	long value();
+
+	TimeUnit unit() default TimeUnit.SECONDS;
+}
@@ -0,0 +1,253 @@
+package ninja.aop;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonObject;
+
+import io.micrometer.core.instrument.Metrics;
+import ninja.service.Outbox;
+import ninja.util.Gson;
+import ninja.util.Utils;
+
+@Aspect
+@Component
+public class CommandCache implements SmartInitializingSingleton { // 以指令路徑及正規化的text為key, 快取送往response_url的訊息, 命中時直接重送到新的response_url
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final ThreadLocal<Recording> RECORDING = new ThreadLocal<>(); // 同一次指令共用, 經wrap帶到Fork的執行緒
+
+	private static final String RESPONSE_URL = "response_url", TEXT = "text";
+
+	private final Map<Method, Handler> handlers = new ConcurrentHashMap<>();
+
+	private final ParameterNameDiscoverer discoverer = new DefaultParameterNameDiscoverer();
+
+	@Autowired
+	private Outbox outbox;
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Value( "${command.cache.bytes:16777216}" )
+	private long bytes;
+
+	private Cache<String, Entry> cache;
+
+	public static void record( JsonObject json ) { // @Cached的指令送出的訊息, 其他情況不做事
+		Recording recording = RECORDING.get();
+
+		if ( recording != null ) {
+			recording.messages.add( Gson.json( json ) );
+		}
+	}
+
+	public static void discard() { // 本次結果不完整或使用了上游的舊資料, 不快取; 標記在指令共用的recording上, 在哪條執行緒呼叫都有效
+		Recording recording = RECORDING.get();
+
+		if ( recording != null ) {
+			recording.discarded = true;
+		}
+	}
+
+	public static <T> Supplier<T> wrap( Supplier<T> supplier ) { // 同Deadline.wrap, 讓其他執行緒上的discard作用在同一個指令
+		Recording recording = RECORDING.get();
+
+		return () -> {
+			Recording previous = RECORDING.get();
+
+			set( recording );
+
+			try {
+				return supplier.get();
+
+			} finally {
+				set( previous );
+			}
+		};
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() { // 啟動時檢查所有@Cached方法都有路徑及response_url參數, 不要等到第一次呼叫才失敗
+		for ( String name : context.getBeanDefinitionNames() ) {
+			Class<?> type = context.getType( name );
+
+			if ( type != null ) {
+				ReflectionUtils.doWithMethods( ClassUtils.getUserClass( type ), i -> handler( i ), i -> i.isAnnotationPresent( Cached.class ) );
+			}
+		}
+
+		log.info( "Cached handlers: {}", handlers.size() );
+	}
+
+	@PostConstruct
+	private void init() { // 依字串長度估計記憶體, 超過上限時淘汰最久未使用的
+		cache = CacheBuilder.newBuilder().maximumWeight( bytes ).weigher( ( String key, Entry entry ) -> entry.weight( key ) ).build();
+
+		Metrics.gauge( "command.cache.size", cache, Cache::size );
+	}
+
+	@Around( "@annotation(cached)" )
+	public Object around( ProceedingJoinPoint point, Cached cached ) throws Throwable {
+		Handler handler = handler( ( ( MethodSignature ) point.getSignature() ).getMethod() );
+
+		Object[] args = point.getArgs();
+
+		String path = handler.path, url = args[ handler.url ].toString();
+
+		String key = Utils.spacer( path, handler.text < 0 ? StringUtils.EMPTY : StringUtils.normalizeSpace( ( String ) args[ handler.text ] ) );
+
+		Entry entry = cache.getIfPresent( key );
+
+		if ( entry != null && entry.expiry < System.currentTimeMillis() ) {
+			cache.invalidate( key );
+
+			entry = null;
+		}
+
+		Metrics.counter( "command.cache", "command", path, "result", entry == null ? "miss" : "hit" ).increment();
+
+		if ( entry != null ) {
+			entry.messages.forEach( i -> outbox.send( url, Gson.from( i, JsonObject.class ) ) );
+
+			return null;
+		}
+
+		Recording recording = new Recording();
+
+		RECORDING.set( recording );
+
+		try { // 失敗時不快取
+			Object result = point.proceed();
+
+			if ( !recording.messages.isEmpty() && !recording.discarded ) {
+				cache.put( key, new Entry( recording.messages, System.currentTimeMillis() + cached.unit().toMillis( cached.value() ) ) );
+			}
+
+			return result;
+
+		} finally {
+			RECORDING.remove();
+		}
+	}
+
+	private static void set( Recording recording ) {
+		if ( recording == null ) {
+			RECORDING.remove();
+
+		} else {
+			RECORDING.set( recording );
+		}
+	}
+
+	private Handler handler( Method method ) {
+		return handlers.computeIfAbsent( method, i -> {
+			PostMapping mapping = i.getAnnotation( PostMapping.class );
+
+			String[] paths = mapping == null ? null : ArrayUtils.isEmpty( mapping.value() ) ? mapping.path() : mapping.value();
+
+			if ( ArrayUtils.isEmpty( paths ) ) {
+				throw new IllegalStateException( "@Cached requires @PostMapping with a path: " + i );
+			}
+
+			int url = -1, text = -1;
+
+			for ( int j = 0; j < i.getParameterCount(); j++ ) {
+				String name = param( new MethodParameter( i, j ) );
+
+				if ( RESPONSE_URL.equals( name ) ) {
+					url = j;
+
+				} else if ( TEXT.equals( name ) ) {
+					text = j;
+				}
+			}
+
+			if ( url < 0 ) {
+				throw new IllegalStateException( "@Cached requires a @RequestParam( \"response_url\" ) parameter: " + i );
+			}
+
+			return new Handler( paths[ 0 ], url, text );
+		} );
+	}
+
+	private String param( MethodParameter parameter ) { // 同@RequestParam的解析: 未指定名稱時用參數名稱
+		RequestParam param = parameter.getParameterAnnotation( RequestParam.class );
+
+		if ( param == null ) {
+			return null;
+		}
+
+		String name = StringUtils.defaultIfEmpty( param.value(), param.name() );
+
+		if ( !name.isEmpty() ) {
+			return name;
+		}
+
+		parameter.initParameterNameDiscovery( discoverer );
+
+		return parameter.getParameterName();
+	}
+
+	private static class Recording {
+		private final List<String> messages = new CopyOnWriteArrayList<>();
+
+		private volatile boolean discarded;
+	}
+
+	private static class Handler {
+		private final String path;
+
+		private final int url, text;
+
+		private Handler( String path, int url, int text ) {
+			this.path = path;
+			this.url = url;
+			this.text = text;
+		}
+	}
+
+	private static class Entry {
+		private final List<String> messages;
+
+		private final long expiry;
+
+		private Entry( List<String> messages, long expiry ) {
+			this.messages = messages;
+			this.expiry = expiry;
+		}
+
+		private int weight( String key ) { // char為2 bytes
+			return 2 * ( key.length() + messages.stream().mapToInt( String::length ).sum() );
+		}
+	}
+}
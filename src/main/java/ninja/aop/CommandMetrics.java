@@ -0,0 +1,51 @@
+package ninja.aop;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+@Aspect
+@Component
+@Order( Ordered.HIGHEST_PRECEDENCE ) // 在CommandCache外層, 命中快取的也計入
+public class CommandMetrics { // 每個指令的處理時間及結果; @Async的指令在執行緒中才計時, 不含排隊時間
+	@Around( "within(ninja.controller..*) && @annotation(mapping)" )
+	public Object around( ProceedingJoinPoint point, PostMapping mapping ) throws Throwable {
+		long start = System.nanoTime();
+
+		String outcome = "success";
+
+		try {
+			return point.proceed();
+
+		} catch ( Throwable e ) {
+			outcome = e.getClass().getSimpleName();
+
+			throw e;
+
+		} finally {
+			timer( path( point, mapping ), outcome ).record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+		}
+	}
+
+	private Timer timer( String command, String outcome ) {
+		return Timer.builder( "command" ).tags( "command", command, "outcome", outcome ).publishPercentileHistogram().register( Metrics.globalRegistry );
+	}
+
+	private String path( ProceedingJoinPoint point, PostMapping mapping ) {
+		RequestMapping root = AnnotationUtils.findAnnotation( point.getSignature().getDeclaringType(), RequestMapping.class );
+
+		return ( root == null ? StringUtils.EMPTY : root.value()[ 0 ] ) + ( mapping.value().length == 0 ? StringUtils.EMPTY : mapping.value()[ 0 ] );
+	}
+}
@@ -0,0 +1,5 @@
+package ninja.consts;
+
+public class Pool {
+	public static final String DEFAULT = "async", SCRAPE = "scrape", BULK = "bulk", DATA = "data";
+}
@@ -17,8 +17,10 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import net.gpedro.integrations.slack.SlackAttachment;
+import net.gpedro.integrations.slack.SlackMessage;
 import ninja.consts.Color;
 import ninja.service.AQI;
+import ninja.service.AsyncHttp;
 import ninja.util.Cast;
 import ninja.util.Check;
 import ninja.util.Gson;
@@ -52,6 +54,9 @@ public class AQIController extends GroupController<List<String>> {
 	@Autowired
 	private AQI aqi;
 
+	@Autowired
+	private AsyncHttp http;
+
 	@Value( "${epa.api.key:}" )
 	private String key;
 
@@ -60,6 +65,11 @@ public class AQIController extends GroupController<List<String>> {
 		return ArrayUtils.toArray( DEFAULT, groups( aqi ) );
 	}
 
+	@Override
+	protected Object version() {
+		return aqi.version();
+	}
+
 	@Override
 	protected Stream<Map<String, String>> group( Entry<String, List<String>> entry ) {
 		return entry.getValue().stream().map( super::option );
@@ -68,11 +78,31 @@ public class AQIController extends GroupController<List<String>> {
 	@PostMapping( "/aqi" )
 	@Async
 	public void aqi( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
-		String site = StringUtils.defaultIfEmpty( text, DEFAULT ), county;
+		String site = StringUtils.defaultIfEmpty( text, DEFAULT ), county = county( site );
+
+		message( message( command, text, county, site, Utils.call( String.format( API_URL, site, key ) ) ), url );
+	}
+
+	@PostMapping( "/rx/aqi" )
+	public void rxAqi( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
+		reply( () -> {
+			String site = StringUtils.defaultIfEmpty( text, DEFAULT ), county = county( site );
+
+			return http.get( String.format( API_URL, site, key ) ).thenApply( i -> message( command, text, county, site, i ) );
+
+		}, url );
+	}
+
+	public void aqi( String command, String url ) {
+		aqi( command, StringUtils.EMPTY, url ); // 利用Proxy模式下內部呼叫非同步不會作用的機制提供此方法給Task @Retryable
+	}
 
-		county = Check.first( aqi.data().entrySet().stream().filter( i -> i.getValue().contains( site ) ), "查無測站: " + site ).getKey();
+	private String county( String site ) {
+		return Check.first( aqi.data().entrySet().stream().filter( i -> i.getValue().contains( site ) ), "查無測站: " + site ).getKey();
+	}
 
-		Map<?, ?> result = Gson.from( Utils.call( String.format( API_URL, site, key ) ), Map.class );
+	private SlackMessage message( String command, String text, String county, String site, String json ) {
+		Map<?, ?> result = Gson.from( json, Map.class );
 
 		Map<?, ?> info = Cast.map( Check.first( Cast.list( result, "records" ).stream(), "查無資料: " + site ) );
 
@@ -86,11 +116,7 @@ public class AQIController extends GroupController<List<String>> {
 
 		TITLES.keySet().forEach( i -> attach.addFields( field( TITLES.get( i ), value( Cast.string( info, i ), UNITS.get( i ) ) ) ) );
 
-		message( attach.setFallback( String.format( "%s%sAQI: %s", county, site, aqi ) ), command, text, url );
-	}
-
-	public void aqi( String command, String url ) {
-		aqi( command, StringUtils.EMPTY, url ); // 利用Proxy模式下內部呼叫非同步不會作用的機制提供此方法給Task @Retryable
+		return Slack.message( attach.setFallback( String.format( "%s%sAQI: %s", county, site, aqi ) ), command, text );
 	}
 
 	private String value( String value, String unit ) {
@@ -1,34 +1,56 @@
 package ninja.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import javax.crypto.Mac;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.HmacAlgorithms;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.client.fluent.Request;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.ModelAttribute;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
 
 import net.gpedro.integrations.slack.SlackAttachment;
 import net.gpedro.integrations.slack.SlackField;
 import net.gpedro.integrations.slack.SlackMessage;
+import ninja.aop.CommandCache;
 import ninja.consts.Zone;
+import ninja.ex.EXHandler;
+import ninja.filter.BodyFilter;
+import ninja.service.Outbox;
+import ninja.service.SlackAPI;
 import ninja.util.Check;
+import ninja.util.Deadline;
 import ninja.util.Gson;
 import ninja.util.Signature;
 import ninja.util.Slack;
@@ -37,7 +59,7 @@ import ninja.util.Utils;
 public abstract class BaseController {
 	protected final Logger log = LoggerFactory.getLogger( this.getClass() );
 
-	protected static final String REQ_BODY = "req_body", CHANNEL_ID = "channel_id", TRIGGER_ID = "trigger_id", RESPONSE_URL = "response_url";
+	protected static final String REQ_BODY = BodyFilter.BODY, CHANNEL_ID = "channel_id", TRIGGER_ID = "trigger_id", RESPONSE_URL = "response_url";
 
 	protected static final String TEXT = "text", LABEL = "label", VALUE = "value", OPTIONS = "options";
 
@@ -45,7 +67,26 @@ public abstract class BaseController {
 
 	private static final String HEADER_TIMESTAMP = "X-Slack-Request-Timestamp", HEADER_SIGNATURE = "X-Slack-Signature";
 
-	private static final String VERSION = "v0", API_URL = "https://slack.com/api/", API_QUERY = "?token=%s&channel=%s";
+	private static final String VERSION = "v0", PREFIX = VERSION + "=", API_QUERY = "?token=%s&channel=%s";
+
+	private static final byte[] BASE = ( VERSION + ":" ).getBytes( StandardCharsets.US_ASCII );
+
+	private static final String STALE = ":hourglass_flowing_sand: %s前的結果, 更新中...", FAILED = ":warning: 更新失敗, 以下為%s前的結果";
+
+	private static final Cache<String, Pair<Instant, String>> RESULTS = CacheBuilder.newBuilder().maximumSize( 1000 ).expireAfterWrite( 1, TimeUnit.DAYS ).build();
+
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor( new ThreadFactoryBuilder().setNameFormat( "stale-%d" ).setDaemon( true ).build() );
+
+	private static final ExecutorService REPLIES = Executors.newCachedThreadPool( new ThreadFactoryBuilder().setNameFormat( "reply-%d" ).setDaemon( true ).build() ); // outbox已滿時send會等待, 不可佔住HttpAsyncClient的I/O執行緒
+
+	@Autowired
+	private SlackAPI api;
+
+	@Autowired
+	private Outbox outbox;
+
+	@Autowired
+	private EXHandler handler;
 
 	@Value( "${slack.signing.secret:}" )
 	private String secret;
@@ -53,17 +94,25 @@ public abstract class BaseController {
 	@Value( "${slack.user.token:}" )
 	private String token;
 
+	@Value( "${slack.deadline:30000}" )
+	private long deadline;
+
+	@Value( "${slack.stale.budget:3000}" )
+	private long budget;
+
 	@ModelAttribute
-	public void verify( @RequestHeader( HEADER_TIMESTAMP ) String timestamp, @RequestHeader( HEADER_SIGNATURE ) String signature, @RequestBody String body, HttpServletRequest request ) {
+	public void verify( @RequestHeader( HEADER_TIMESTAMP ) String timestamp, @RequestHeader( HEADER_SIGNATURE ) String signature, HttpServletRequest request ) {
+		Deadline.start( deadline, TimeUnit.MILLISECONDS ); // 使用者等待回覆的時間, 之後的上游呼叫都不超過
+
 		Instant instant = Instant.ofEpochSecond( Long.valueOf( timestamp ) );
 
 		Check.expr( instant.plus( 5, ChronoUnit.MINUTES ).compareTo( Instant.now() ) >= 0, "Instant: " + instant );
 
-		String digest = digest( String.join( ":", VERSION, timestamp, getClass().equals( EventController.class ) ? body : body.replace( "*", "%2A" ) ) );
-
-		Check.equals( signature, digest, String.format( "%s, body: %s", String.join( "!=", signature, digest ), body ) );
+		byte[] body = ( byte[] ) request.getAttribute( REQ_BODY ), digest = digest( timestamp, body ); // 原始body, 不需再將*轉回%2A
 
-		request.setAttribute( REQ_BODY, body );
+		if ( !signature.startsWith( PREFIX ) || !Signature.equals( signature.substring( PREFIX.length() ), digest ) ) {
+			throw new IllegalArgumentException( String.format( "%s!=%s%s, body: %s", signature, PREFIX, Hex.encodeHexString( digest ), new String( body, StandardCharsets.UTF_8 ) ) );
+		}
 
 		preHandle( request );
 	}
@@ -85,7 +134,7 @@ public abstract class BaseController {
 	}
 
 	protected String get( String method, String token, String channel, String query ) {
-		return Utils.call( uri( method ) + String.format( API_QUERY, token, channel ) + query );
+		return SlackAPI.join( api.get( method, token, String.format( API_QUERY, token, channel ) + query ) );
 	}
 
 	protected String post( String method, Object src ) {
@@ -93,7 +142,15 @@ public abstract class BaseController {
 	}
 
 	protected String post( String method, String token, Object src ) {
-		return Utils.call( Request.Post( uri( method ) ).setHeader( HttpHeaders.AUTHORIZATION, "Bearer " + token ), Gson.json( src ) );
+		return SlackAPI.join( submit( method, token, src ) );
+	}
+
+	protected CompletableFuture<String> submit( String method, Object src ) {
+		return submit( method, token, src );
+	}
+
+	protected CompletableFuture<String> submit( String method, String token, Object src ) {
+		return api.post( method, token, src );
 	}
 
 	protected String tag( String... tag ) {
@@ -116,18 +173,139 @@ public abstract class BaseController {
 	}
 
 	protected void message( SlackMessage message, String url ) {
-		log.info( Utils.call( url, message ) );
+		send( url, Utils.json( message ) );
+	}
+
+	protected void replace( SlackMessage message, String url ) { // 取代先前送出的訊息, 不另外新增一則
+		JsonObject json = Utils.json( message );
+
+		json.addProperty( "replace_original", true );
+
+		send( url, json );
+	}
+
+	protected void message( String command, String text, Supplier<SlackMessage> supplier, String url ) { // 超過budget仍未取得結果時, 先回覆同一指令上次的結果, 新結果到了再取代
+		String key = Utils.spacer( command, StringUtils.normalizeSpace( text ) );
+
+		AtomicBoolean done = new AtomicBoolean();
+
+		AtomicReference<Pair<Instant, String>> stale = new AtomicReference<>(); // 已送出的舊結果
+
+		ScheduledFuture<?> timer = SCHEDULER.schedule( () -> {
+			Pair<Instant, String> last = RESULTS.getIfPresent( key );
+
+			synchronized ( done ) { // 與新結果互斥, 確保舊結果不會排在新結果之後
+				if ( !done.get() && last != null ) {
+					outbox.send( url, stale( last, STALE ) );
+
+					stale.set( last );
+				}
+			}
+		}, budget, TimeUnit.MILLISECONDS );
+
+		SlackMessage message;
+
+		try {
+			message = supplier.get();
+
+		} catch ( RuntimeException e ) {
+			synchronized ( done ) { // 之後timer不會再送出舊結果
+				done.set( true );
+			}
+
+			if ( stale.get() == null ) {
+				throw e;
+			}
+
+			log.error( StringUtils.EMPTY, e ); // 已送出舊結果, 改為標示更新失敗, 不再另外回覆錯誤訊息
+
+			handler.count( "stale", command, e );
+
+			JsonObject json = stale( stale.get(), FAILED );
+
+			json.addProperty( "replace_original", true );
+
+			outbox.send( url, json );
+
+			return;
+
+		} finally {
+			timer.cancel( false );
+
+			synchronized ( done ) {
+				done.set( true );
+			}
+		}
+
+		JsonObject json = Utils.json( message );
+
+		RESULTS.put( key, Pair.of( Instant.now(), Gson.json( json ) ) );
+
+		CommandCache.record( json );
+
+		json.addProperty( "replace_original", stale.get() != null ); // 取代先送出的舊結果
+
+		outbox.send( url, json );
+	}
+
+	protected void reply( Supplier<CompletableFuture<SlackMessage>> supplier, String url ) { // 非阻塞路徑: 完成後交給outbox送往response_url, 錯誤訊息同EXHandler
+		CompletableFuture<SlackMessage> future;
+
+		try {
+			future = supplier.get();
+
+		} catch ( RuntimeException e ) {
+			( future = new CompletableFuture<>() ).completeExceptionally( e );
+		}
+
+		future.whenCompleteAsync( ( message, e ) -> { // 與其他回覆相同, 依url排序並重試
+			if ( e == null ) {
+				outbox.send( url, message );
+
+				return;
+			}
+
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+			log.error( StringUtils.EMPTY, cause );
+
+			handler.respond( url, cause );
+		}, REPLIES );
 	}
 
 	protected <T> List<T> list( Stream<T> stream ) {
 		return Utils.list( stream );
 	}
 
-	private String digest( String content ) {
-		return String.join( "=", VERSION, Hex.encodeHexString( Signature.hmac( content, secret, HmacAlgorithms.HMAC_SHA_256 ) ) );
+	private void send( String url, JsonObject json ) {
+		CommandCache.record( json );
+
+		outbox.send( url, json );
+	}
+
+	private JsonObject stale( Pair<Instant, String> last, String label ) { // 標示加在原本text(指令)之前
+		JsonObject json = Gson.from( last.getRight(), JsonObject.class );
+
+		String text = json.has( TEXT ) && !json.get( TEXT ).isJsonNull() ? json.get( TEXT ).getAsString() : null;
+
+		json.addProperty( TEXT, String.format( label, age( last.getLeft() ) ) + ( StringUtils.isEmpty( text ) ? StringUtils.EMPTY : "\n" + text ) );
+
+		return json;
+	}
+
+	private String age( Instant time ) {
+		Duration age = Duration.between( time, Instant.now() );
+
+		return age.toHours() > 0 ? age.toHours() + "小時" : age.toMinutes() > 0 ? age.toMinutes() + "分鐘" : age.getSeconds() + "秒";
 	}
 
-	private String uri( String method ) {
-		return API_URL + method;
+	private byte[] digest( String timestamp, byte[] body ) {
+		Mac mac = Signature.mac( secret, HmacAlgorithms.HMAC_SHA_256 );
+
+		mac.update( BASE );
+		mac.update( timestamp.getBytes( StandardCharsets.US_ASCII ) );
+		mac.update( ( byte ) ':' );
+
+		return mac.doFinal( body );
 	}
 }
\ No newline at end of file
@@ -3,7 +3,10 @@ package ninja.controller;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -19,6 +22,7 @@ import com.google.common.collect.Sets;
 
 import net.gpedro.integrations.slack.SlackAttachment;
 import net.gpedro.integrations.slack.SlackMessage;
+import ninja.aop.Cached;
 import ninja.consts.Act;
 import ninja.consts.Color;
 import ninja.consts.Filter;
@@ -26,6 +30,7 @@ import ninja.service.Bus;
 import ninja.slack.Action;
 import ninja.util.Cast;
 import ninja.util.Check;
+import ninja.util.Fork;
 import ninja.util.Slack;
 
 @RestController
@@ -41,51 +46,52 @@ public class BusController extends DialogController {
 	private String url;
 
 	@PostMapping( "/bus" )
+	@Cached( 15 )
 	@Async
 	public void bus( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
-		String[] params = text.contains( StringUtils.SPACE ) ? Check.params( text ) : ArrayUtils.toArray( text, StringUtils.EMPTY );
-
-		String route = params[ 0 ], stop = params[ 1 ], unwrap = bus.unwrap( stop ), filter;
-
-		Check.expr( bus.check( route ), "查無路線: " + route );
+		message( command, text, () -> { // PTX較慢時先回覆上次的結果
+			String[] params = params( text );
 
-		Map<String, ?> info = bus.call( "Route", filter = Filter.ROUTE.eq( route ) ).get( 0 ); // 原則上不可能拿不到
+			String route = params[ 0 ], stop = params[ 1 ], filter = Filter.ROUTE.eq( route );
 
-		String departure = Cast.string( info, "DepartureStopNameZh" ), destination = Cast.string( info, "DestinationStopNameZh" );
+			Fork fork = Fork.of(); // 路線及到站時間同時查詢
 
-		SlackAttachment attach = Slack.attachment( route + "公車動態", String.format( WEB_URL, bus.id( route ) ) );
+			CompletableFuture<List<Map<String, ?>>> future = fork.fork( () -> bus.call( "Route", filter ) ), future2 = stop.isEmpty() ? null : fork.fork( () -> {
+				return bus.call( "EstimatedTimeOfArrival", filter( filter, stop ), "$orderby=Direction" );
+			} );
 
-		SlackMessage message = Slack.message( attach, command, text );
+			return message( command, text, route, stop, fork.join( future ), future2 == null ? null : fork.join( future2 ) );
 
-		if ( stop.isEmpty() ) {
-			message( message, url );
+		}, url );
+	}
 
-			return;
-		}
+	@PostMapping( "/rx/bus" )
+	public void rxBus( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
+		reply( () -> {
+			String[] params = params( text );
 
-		filter = Filter.and( filter, stop.equals( unwrap ) ? Filter.STOP.contains( stop ) : Filter.STOP.eq( unwrap ), Filter.DIRECTION.le( "1" ) );
+			String route = params[ 0 ], stop = params[ 1 ], filter = Filter.ROUTE.eq( route );
 
-		List<Map<String, ?>> info2 = Check.list( bus.call( "EstimatedTimeOfArrival", filter, "$orderby=Direction" ), "查無站牌: " + stop );
+			CompletableFuture<List<Map<String, ?>>> future = bus.future( "Route", filter ), future2 = stop.isEmpty() ? CompletableFuture.completedFuture( null ) : bus.future( "EstimatedTimeOfArrival", filter( filter, stop ), "$orderby=Direction" );
 
-		info2.stream().collect( Collectors.groupingBy( bus::stop, Collectors.toList() ) ).forEach( ( k, v ) -> {
-			message.addAttachments( Slack.attachment( Color.G ).setText( ":busstop:" + k ).setFields( list( v.stream().map( i -> {
-				Double direction = Cast.dble( i, "Direction" ), time = Cast.dble( i, "EstimateTime" ), status = Cast.dble( i, "StopStatus" );
+			return future.thenCombine( future2, ( i, j ) -> message( command, text, route, stop, i, j ) );
 
-				return field( "往".concat( direction.equals( 0d ) ? destination : departure ), time == null ? STATUS.get( status ) : time( time ) );
-			} ) ) ) );
-		} );
-
-		message( message, url );
+		}, url );
 	}
 
 	@PostMapping( "/station" )
+	@Cached( value = 6, unit = TimeUnit.HOURS )
 	@Async
 	public void station( @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		String[] params = Check.station( Check.params( text ) );
 
-		String start = params[ 0 ], end = params[ 1 ], filter = Filter.or( Filter.STATION.eq( start ), Filter.STATION.eq( end ) );
+		String start = params[ 0 ], end = params[ 1 ];
+
+		Fork fork = Fork.of(); // 起訖站分開同時查詢
+
+		CompletableFuture<List<Map<String, ?>>> future = fork.fork( () -> bus.call( "Station", Filter.STATION.eq( start ) ) ), future2 = fork.fork( () -> bus.call( "Station", Filter.STATION.eq( end ) ) );
 
-		Map<String, Set<String>> info = bus.call( "Station", filter ).stream().collect( Collectors.toMap( bus::station, i -> {
+		Map<String, Set<String>> info = Stream.concat( fork.join( future ).stream(), fork.join( future2 ).stream() ).collect( Collectors.toMap( bus::station, i -> {
 			return bus.stops( i, j -> bus.name( j, "RouteName" ) ).collect( Collectors.toSet() );
 
 		}, Sets::union ) );
@@ -101,6 +107,44 @@ public class BusController extends DialogController {
 		message( Slack.message().addAttachments( Slack.author( attach, TITLE, Bus.ROUTES_URL, this.url ) ), url );
 	}
 
+	private String[] params( String text ) {
+		String[] params = text.contains( StringUtils.SPACE ) ? Check.params( text ) : ArrayUtils.toArray( text, StringUtils.EMPTY );
+
+		Check.expr( bus.check( params[ 0 ] ), "查無路線: " + params[ 0 ] );
+
+		return params;
+	}
+
+	private String filter( String filter, String stop ) {
+		String unwrap = bus.unwrap( stop );
+
+		return Filter.and( filter, stop.equals( unwrap ) ? Filter.STOP.contains( stop ) : Filter.STOP.eq( unwrap ), Filter.DIRECTION.le( "1" ) );
+	}
+
+	private SlackMessage message( String command, String text, String route, String stop, List<Map<String, ?>> info, List<Map<String, ?>> info2 ) {
+		Map<String, ?> map = info.get( 0 ); // 原則上不可能拿不到
+
+		String departure = Cast.string( map, "DepartureStopNameZh" ), destination = Cast.string( map, "DestinationStopNameZh" );
+
+		SlackAttachment attach = Slack.attachment( route + "公車動態", String.format( WEB_URL, bus.id( route ) ) );
+
+		SlackMessage message = Slack.message( attach, command, text );
+
+		if ( stop.isEmpty() ) {
+			return message;
+		}
+
+		Check.list( info2, "查無站牌: " + stop ).stream().collect( Collectors.groupingBy( bus::stop, Collectors.toList() ) ).forEach( ( k, v ) -> {
+			message.addAttachments( Slack.attachment( Color.G ).setText( ":busstop:" + k ).setFields( list( v.stream().map( i -> {
+				Double direction = Cast.dble( i, "Direction" ), time = Cast.dble( i, "EstimateTime" ), status = Cast.dble( i, "StopStatus" );
+
+				return field( "往".concat( direction.equals( 0d ) ? destination : departure ), time == null ? STATUS.get( status ) : time( time ) );
+			} ) ) ) );
+		} );
+
+		return message;
+	}
+
 	private String time( Double time ) {
 		int seconds = time.intValue(), minutes = seconds / 60;
 
@@ -23,6 +23,11 @@ public class ClearController extends DialogController {
 		return ArrayUtils.toArray( options( list( datas.stream().map( ClassUtils::getSimpleName ).sorted() ) ) );
 	}
 
+	@Override
+	protected Object version() {
+		return FIXED;
+	}
+
 	@PostMapping( "/clear" )
 	@Async
 	public void clear( @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
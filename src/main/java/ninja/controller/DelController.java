@@ -1,13 +1,18 @@
 package ninja.controller;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -15,59 +20,97 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.google.common.collect.ImmutableMap;
 
-import magic.util.Utils;
 import net.gpedro.integrations.slack.SlackAttachment;
+import net.gpedro.integrations.slack.SlackMessage;
+import ninja.consts.Pool;
 import ninja.slack.Event;
 import ninja.slack.History;
 import ninja.util.Gson;
+import ninja.util.Slack;
 
 @RestController
 public class DelController extends BaseController {
 	private static final String HISTORY_METHOD = "conversations.history", DEL_METHOD = "chat.delete";
 
-	private static final String QUERY = "&oldest=%d&latest=%d", TEXT = "總共有 %d 則訊息\n已刪除 %d 則訊息";
+	private static final String QUERY = "&oldest=%d&latest=%d&limit=200", CURSOR = "&cursor=%s", TEXT = "總共有 %d 則訊息\n已刪除 %d 則訊息", PROGRESS = "%s 刪除中... 已刪除 %d / %d 則訊息";
+
+	private static final int PROGRESS_MAX = 3; // response_url在30分鐘內只接受5次, 保留給最後的結果
 
 	private static final Map<String, Long> DAYS_AGO = ImmutableMap.of( StringUtils.EMPTY, 0L, "今天", 0L, "昨天", 1L, "前天", 2L );
 
+	@Value( "${slack.delete.concurrency:50}" ) // 同時進行中的刪除數, 約為chat.delete(tier 3)每分鐘的額度
+	private int concurrency;
+
+	@Value( "${slack.delete.progress.interval:60}" ) // 進度訊息的最短間隔(秒)
+	private long interval;
+
 	@PostMapping( "/delete" )
-	@Async
+	@Async( Pool.BULK )
 	public void delete( @RequestParam( CHANNEL_ID ) String channel, @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
-		Long days = DAYS_AGO.get( text ), success = 0L;
+		Long days = DAYS_AGO.get( text );
 
 		LocalDate date = days == null ? LocalDate.parse( text ) : LocalDate.now( ZONE_ID ).minusDays( days );
 
-		String title = date.toString(), query = String.format( QUERY, epochSecond( date ), epochSecond( date.plusDays( 1 ) ) ), response;
+		String title = date.toString(), query = String.format( QUERY, epochSecond( date ), epochSecond( date.plusDays( 1 ) ) ), cursor = StringUtils.EMPTY;
 
 		log.info( "Date: {}, query: {}", date, query );
 
-		History history = Gson.from( get( HISTORY_METHOD, channel, query ), History.class );
+		Semaphore permits = new Semaphore( concurrency );
+
+		AtomicLong success = new AtomicLong();
+
+		List<CompletableFuture<?>> futures = new ArrayList<>();
 
-		List<Event> message = ObjectUtils.defaultIfNull( history.getMessages(), new ArrayList<>() );
+		History history;
 
-		for ( int i = 0, size = message.size(); i < size; i++ ) {
-			Event event = message.get( i );
+		Instant next = Instant.now().plusSeconds( interval );
 
-			event.setChannel( channel );
+		int progress = 0;
 
-			try {
-				log.info( response = post( DEL_METHOD, event ) );
+		do { // 逐頁取得歷史訊息, 刪除交由SlackAPI排隊, 以semaphore限制進行中的數量
+			history = Gson.from( get( HISTORY_METHOD, channel, query + String.format( CURSOR, cursor ) ), History.class );
 
-				success += response.contains( "\"ok\":true" ) ? 1 : 0;
+			for ( Event event : ObjectUtils.defaultIfNull( history.getMessages(), Collections.<Event>emptyList() ) ) {
+				event.setChannel( channel );
 
-			} catch ( IllegalStateException e ) {
-				if ( !e.getMessage().contains( String.valueOf( HttpStatus.TOO_MANY_REQUESTS.value() ) ) ) {
-					throw e;
-				}
+				permits.acquireUninterruptibly();
 
-				i--;
+				futures.add( submit( DEL_METHOD, event ).whenComplete( ( response, e ) -> {
+					permits.release();
 
-				Utils.sleep( 5000 );
+					if ( e == null && StringUtils.contains( response, "\"ok\":true" ) ) {
+						success.incrementAndGet();
+
+					} else {
+						log.warn( "Delete failed: {}", e == null ? response : e.getMessage() );
+					}
+				} ) );
 			}
-		}
 
-		String txt = String.format( TEXT, message.size(), success );
+			cursor = history.getCursor();
+
+			if ( history.isMore() && progress < PROGRESS_MAX && Instant.now().isAfter( next ) ) { // 限制次數及間隔, 並取代前一則進度
+				replace( new SlackMessage( String.format( PROGRESS, title, success.get(), futures.size() ) ), url );
+
+				next = Instant.now().plusSeconds( interval );
 
-		message( new SlackAttachment( title + "\n" + txt ).setTitle( title ).setText( txt ), command, text, url );
+				progress++;
+			}
+
+		} while ( history.isMore() && StringUtils.isNotEmpty( cursor ) );
+
+		CompletableFuture.allOf( futures.toArray( new CompletableFuture<?>[ 0 ] ) ).exceptionally( e -> null ).join();
+
+		String txt = String.format( TEXT, futures.size(), success.get() );
+
+		SlackAttachment attach = new SlackAttachment( title + "\n" + txt ).setTitle( title ).setText( txt );
+
+		if ( progress > 0 ) { // 結果取代進度訊息
+			replace( Slack.message( attach, command, text ), url );
+
+		} else {
+			message( attach, command, text, url );
+		}
 	}
 
 	private long epochSecond( LocalDate date ) {
@@ -1,7 +1,9 @@
 package ninja.controller;
 
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
@@ -10,6 +12,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.google.common.collect.ImmutableMap;
@@ -17,11 +20,28 @@ import com.google.common.collect.ImmutableMap;
 import magic.util.Utils;
 import net.gpedro.integrations.slack.SlackException;
 import ninja.consts.Dialog;
+import ninja.util.Check;
 import ninja.util.Gson;
 
 public abstract class DialogController extends BaseController {
 	private static final String DIALOG_TEMPLATE = "/template/dialog/%s.json", DIALOG_METHOD = "dialog.open";
 
+	protected static final Object FIXED = new Object(); // args()不會變動時使用
+
+	private static final Map<Dialog, String> TEMPLATES = new EnumMap<>( Dialog.class );
+
+	static { // 啟動時一次載入所有範本
+		for ( Dialog dialog : Dialog.values() ) {
+			String path = String.format( DIALOG_TEMPLATE, dialog.name().toLowerCase() );
+
+			if ( DialogController.class.getResource( path ) != null ) {
+				TEMPLATES.put( dialog, Utils.getResourceAsString( path ) );
+			}
+		}
+	}
+
+	private final Map<Dialog, Pair<Object, String>> dialogs = new ConcurrentHashMap<>();
+
 	@ExceptionHandler( SlackException.class )
 	public void ex() {
 	}
@@ -29,16 +49,14 @@ public abstract class DialogController extends BaseController {
 	@Override
 	protected void preHandle( HttpServletRequest request ) {
 		if ( request.getParameter( TEXT ).isEmpty() && !ArrayUtils.contains( skip(), request.getRequestURI() ) ) {
-			dialog( request.getParameter( TRIGGER_ID ), EnumUtils.getEnumIgnoreCase( Dialog.class, StringUtils.remove( request.getRequestURI(), "/" ) ) );
+			dialog( request.getParameter( TRIGGER_ID ), EnumUtils.getEnumIgnoreCase( Dialog.class, StringUtils.substringAfterLast( request.getRequestURI(), "/" ) ) );
 
 			throw new SlackException( null );
 		}
 	}
 
 	protected void dialog( String id, Dialog dialog, Object... args ) {
-		String template = Utils.getResourceAsString( String.format( DIALOG_TEMPLATE, dialog.name().toLowerCase() ) );
-
-		log.info( post( DIALOG_METHOD, ImmutableMap.of( TRIGGER_ID, id, "dialog", String.format( template, args ) ) ) );
+		open( id, format( dialog, args ) );
 	}
 
 	protected String options( Collection<String> collection ) {
@@ -61,7 +79,33 @@ public abstract class DialogController extends BaseController {
 		return ArrayUtils.EMPTY_OBJECT_ARRAY;
 	}
 
+	protected Object version() { // args()所依據資料的版本, 相同時沿用已產生的dialog; null為不快取
+		return null;
+	}
+
 	private void dialog( String id, Dialog dialog ) {
-		dialog( id, dialog, args() );
+		Object version = version(); // 需在args()前取得, 產生期間若資料更新, 下次會再重建
+
+		if ( version == null ) {
+			dialog( id, dialog, args() );
+
+			return;
+		}
+
+		Pair<Object, String> cached = dialogs.get( dialog );
+
+		if ( cached == null || !cached.getLeft().equals( version ) ) {
+			dialogs.put( dialog, cached = Pair.of( version, format( dialog, args() ) ) );
+		}
+
+		open( id, cached.getRight() );
+	}
+
+	private String format( Dialog dialog, Object... args ) {
+		return String.format( Check.nil( TEMPLATES.get( dialog ), "查無範本: " + dialog ), args );
+	}
+
+	private void open( String id, String dialog ) {
+		log.info( post( DIALOG_METHOD, ImmutableMap.of( TRIGGER_ID, id, "dialog", dialog ) ) );
 	}
 }
\ No newline at end of file
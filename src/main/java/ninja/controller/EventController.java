@@ -1,23 +1,40 @@
 package ninja.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import ninja.service.Dict;
 import ninja.slack.Callback;
 import ninja.slack.Event;
-import ninja.util.Cast;
 import ninja.util.Check;
 import ninja.util.Gson;
 import ninja.util.Heroku;
@@ -28,11 +45,7 @@ import ninja.util.Utils;
 public class EventController extends BaseController {
 	private static final String CHALLENGE = "challenge", MENTION_KEYWORD = "查詢可用任務", METHOD = "chat.postMessage";
 
-	private static final String GRAMMAR_URL = "http://api.grammarbot.io/v2/check?api_key=%s&text=%s&language=en-US";
-
-	private static final String DICT_TEMPLATE = "%1$s：<https://tw.dictionary.search.yahoo.com/search?p=%2$s|*%2$s*>\n";
-
-	private static final String QUERY_TITLE = "您查詢的單字是", CHECK_TITLE = "您是不是要查", ENG_REGEX = "[a-zA-Z]+";
+	private static final String ENG_REGEX = "[a-zA-Z]+", HEADER_RETRY = "X-Slack-Retry-Num", METRIC = "slack.event", TYPE = "type";
 
 	private static final List<String> REJECT_SUB_TYPES = Arrays.asList( "bot_message", "message_deleted" );
 
@@ -43,16 +56,24 @@ public class EventController extends BaseController {
 	@Value( "${slack.bot.token:}" )
 	private String token;
 
-	@Value( "${grammar.api.key:}" )
-	private String key;
+	@Autowired
+	private Dict dict;
+
+	@Value( "${event.queue.size:100}" )
+	private int size;
+
+	@Value( "${event.queue.threads:2}" )
+	private int threads;
+
+	private final Map<Type, ThreadPoolExecutor> workers = new EnumMap<>( Type.class );
+
+	private final Cache<String, Boolean> events = CacheBuilder.newBuilder().maximumSize( 10000 ).expireAfterWrite( 10, TimeUnit.MINUTES ).build(); // Slack最多重送3次
 
 	@PostMapping( "/event" )
-	public void event( @RequestAttribute( REQ_BODY ) String body, Model model ) {
+	public void event( @RequestHeader( value = HEADER_RETRY, required = false ) String retry, @RequestAttribute( REQ_BODY ) byte[] body, Model model ) {
 		Callback callback = Gson.from( body, Callback.class );
 
-		Event event = callback.getEvent();
-
-		String challenge = callback.getChallenge(), text = event.getText(), channel = event.getChannel();
+		String challenge = callback.getChallenge();
 
 		if ( challenge != null ) {
 			model.addAttribute( CHALLENGE, challenge );
@@ -60,24 +81,53 @@ public class EventController extends BaseController {
 			return;
 		}
 
+		Event event = callback.getEvent();
+
 		if ( REJECT_SUB_TYPES.contains( event.getSubtype() ) ) {
 			return; // 不處理小心會變成無窮迴圈
 		}
 
-		log.info( "Body: {}", body );
+		String id = StringUtils.defaultIfEmpty( callback.getId(), Utils.spacer( event.getChannel(), event.getTs() ) );
+
+		if ( events.asMap().putIfAbsent( id, Boolean.TRUE ) != null ) {
+			log.info( "Duplicate: {}, retry: {}", id, retry );
+
+			Metrics.counter( METRIC, "result", "duplicate" ).increment();
+
+			return;
+		}
 
 		Type type = EnumUtils.getEnumIgnoreCase( Type.class, event.getType() );
 
-		if ( Type.APP_MENTION.equals( type ) && StringUtils.contains( text, MENTION_KEYWORD ) ) {
-			post( Heroku.task( "您可選擇任務並於確認後執行", channel ) );
+		if ( type == null ) {
+			return;
+		}
 
-		} else if ( Type.MESSAGE.equals( type ) && ( text = StringUtils.defaultString( text ).trim() ).matches( ENG_REGEX ) ) {
-			post( Slack.message( translate( text ), channel ) ); // text可能為null, 例如subtype: message_changed
+		log.info( "Body: {}", new String( body, StandardCharsets.UTF_8 ) );
 
-		} else if ( Type.APP_HOME_OPENED.equals( type ) ) {
-			String view = magic.util.Utils.getResourceAsString( "/template/home.json" );
+		long start = System.nanoTime();
 
-			log.info( post( "views.publish", token, ImmutableMap.of( "user_id", event.getUser(), "view", view ) ) );
+		try { // 先回應Slack, 實際處理交給各事件類型的worker
+			workers.get( type ).execute( () -> {
+				try {
+					handle( type, event );
+
+				} catch ( RuntimeException e ) {
+					log.error( StringUtils.EMPTY, e );
+
+				} finally {
+					Metrics.timer( METRIC + ".latency", TYPE, type.name() ).record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+				}
+			} );
+
+			Metrics.counter( METRIC, "result", retry == null ? "accepted" : "retry" ).increment();
+
+		} catch ( RejectedExecutionException e ) {
+			log.error( "Queue full, drop: {}", id );
+
+			events.invalidate( id ); // 讓Slack重送時可以再處理
+
+			Metrics.counter( METRIC, "result", "shed" ).increment();
 		}
 	}
 
@@ -86,27 +136,41 @@ public class EventController extends BaseController {
 	public void dict( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		Check.expr( text.matches( ENG_REGEX ), "參數有誤: " + text );
 
-		message( translate( text ), url );
+		message( dict.translate( text ), url );
 	}
 
-	private String translate( String text ) {
-		String uri = String.format( GRAMMAR_URL, key, text ), value = StringUtils.EMPTY;
+	@PostConstruct
+	private void init() {
+		Arrays.stream( Type.values() ).forEach( i -> {
+			ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat( "event-" + i.name().toLowerCase() + "-%d" ).build();
 
-		try {
-			value = Utils.join( Cast.list( Gson.from( Utils.call( uri ), Map.class ), "matches" ).stream().flatMap( i -> {
-				return Cast.list( Cast.map( i ), "replacements" ).stream();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( size ), factory );
 
-			} ).limit( 1 ).map( i -> Cast.string( Cast.map( i ), VALUE ) ), StringUtils.SPACE );
+			Metrics.gauge( METRIC + ".queue", Tags.of( TYPE, i.name() ), executor, j -> j.getQueue().size() );
 
-		} catch ( RuntimeException e ) {
-			log.error( StringUtils.EMPTY, e );
-		}
+			workers.put( i, executor );
+		} );
+	}
 
-		return ( value.isEmpty() ? StringUtils.EMPTY : dict( CHECK_TITLE, value ) ) + dict( QUERY_TITLE, text );
+	@PreDestroy
+	private void destroy() {
+		workers.values().forEach( ThreadPoolExecutor::shutdown );
 	}
 
-	private String dict( String title, String text ) {
-		return String.format( DICT_TEMPLATE, title, text );
+	private void handle( Type type, Event event ) {
+		String text = event.getText(), channel = event.getChannel();
+
+		if ( Type.APP_MENTION.equals( type ) && StringUtils.contains( text, MENTION_KEYWORD ) ) {
+			post( Heroku.task( "您可選擇任務並於確認後執行", channel ) );
+
+		} else if ( Type.MESSAGE.equals( type ) && ( text = StringUtils.defaultString( text ).trim() ).matches( ENG_REGEX ) ) {
+			post( Slack.message( dict.translate( text ), channel ) ); // text可能為null, 例如subtype: message_changed
+
+		} else if ( Type.APP_HOME_OPENED.equals( type ) ) {
+			String view = magic.util.Utils.getResourceAsString( "/template/home.json" );
+
+			log.info( post( "views.publish", token, ImmutableMap.of( "user_id", event.getUser(), "view", view ) ) );
+		}
 	}
 
 	private void post( Object src ) {
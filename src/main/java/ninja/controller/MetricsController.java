@@ -0,0 +1,52 @@
+package ninja.controller;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.google.common.net.HttpHeaders;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+@RestController
+public class MetricsController { // 供Prometheus抓取, 不是Slack的請求所以不繼承BaseController; 須帶metrics.token, metrics.loopback=true時本機可免token
+	private static final String BEARER = "Bearer ";
+
+	@Autowired
+	private PrometheusMeterRegistry registry;
+
+	@Value( "${metrics.token:}" )
+	private String token;
+
+	@Value( "${metrics.loopback:false}" )
+	private boolean loopback;
+
+	@GetMapping( value = "/prometheus", produces = TextFormat.CONTENT_TYPE_004 )
+	public ResponseEntity<String> prometheus( HttpServletRequest request ) throws UnknownHostException {
+		if ( !( loopback && InetAddress.getByName( request.getRemoteAddr() ).isLoopbackAddress() ) && !authorized( request.getHeader( HttpHeaders.AUTHORIZATION ) ) ) { // 經反向代理時remote address可能是本機, 預設不信任
+			return ResponseEntity.status( HttpStatus.FORBIDDEN ).build();
+		}
+
+		return ResponseEntity.ok( registry.scrape() );
+	}
+
+	private boolean authorized( String header ) {
+		if ( token.isEmpty() || !StringUtils.startsWith( header, BEARER ) ) {
+			return false;
+		}
+
+		return MessageDigest.isEqual( token.getBytes( StandardCharsets.UTF_8 ), header.substring( BEARER.length() ).getBytes( StandardCharsets.UTF_8 ) );
+	}
+}
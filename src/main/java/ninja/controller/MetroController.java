@@ -1,5 +1,7 @@
 package ninja.controller;
 
+import java.util.concurrent.TimeUnit;
+
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import net.gpedro.integrations.slack.SlackAttachment;
 import net.gpedro.integrations.slack.SlackField;
+import ninja.aop.Cached;
 import ninja.service.Metro;
 import ninja.util.Check;
 import ninja.util.Jsoup;
@@ -23,6 +26,7 @@ public class MetroController extends DialogController {
 	private Metro metro;
 
 	@PostMapping( "/mrt" )
+	@Cached( value = 6, unit = TimeUnit.HOURS )
 	@Async
 	public void mrt( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		String[] params = Check.station( Check.params( text ) );
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -26,8 +27,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import net.gpedro.integrations.slack.SlackAttachment;
 import net.gpedro.integrations.slack.SlackMessage;
+import ninja.aop.Cached;
 import ninja.consts.Act;
 import ninja.consts.Color;
+import ninja.consts.Pool;
 import ninja.service.Movie;
 import ninja.slack.Action;
 import ninja.util.Check;
@@ -70,13 +73,19 @@ public class MovieController extends GroupController<Map<String, String>> {
 		return ArrayUtils.toArray( groups( movie ) );
 	}
 
+	@Override
+	protected Object version() {
+		return movie.version();
+	}
+
 	@Override
 	protected Stream<Map<String, String>> group( Entry<String, Map<String, String>> entry ) {
 		return entry.getValue().keySet().stream().map( super::option );
 	}
 
 	@PostMapping( "/theater" )
-	@Async
+	@Cached( value = 30, unit = TimeUnit.MINUTES )
+	@Async( Pool.SCRAPE )
 	public void theater( @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		Action action = Slack.action( Act.MOVIE, "請選擇要觀看的電影" );
 
@@ -88,7 +97,8 @@ public class MovieController extends GroupController<Map<String, String>> {
 	}
 
 	@PostMapping( MOVIE_PATH )
-	@Async
+	@Cached( value = 30, unit = TimeUnit.MINUTES )
+	@Async( Pool.SCRAPE )
 	public void movie( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		String[] params = StringUtils.split( text, null, 2 ); // 考慮電影名稱可能會有空白
 
@@ -127,7 +137,7 @@ public class MovieController extends GroupController<Map<String, String>> {
 	}
 
 	@PostMapping( NEW_PATH )
-	@Async
+	@Async( Pool.SCRAPE )
 	public void mnew( @RequestParam String command, @RequestParam( RESPONSE_URL ) String url ) {
 		List<Element> films = Jsoup.select( NEW_URL, "article.filmList" );
 
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.util.HtmlUtils;
 
+import ninja.consts.Pool;
 import ninja.service.Music;
 import ninja.util.Check;
 import ninja.util.Utils;
@@ -28,7 +29,7 @@ public class MusicController extends BaseController {
     private Music music;
 
     @PostMapping( "/music" )
-    @Async
+    @Async( Pool.SCRAPE )
     public void music( @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
         List<List<String>> songs = Iterables.getOnlyElement( music.data().values() );
 
@@ -4,15 +4,20 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import ninja.aop.Cached;
+import ninja.consts.Pool;
 import ninja.consts.Zone;
+import ninja.service.Store;
 import ninja.util.Cast;
 import ninja.util.Check;
 import ninja.util.Gson;
@@ -29,20 +34,32 @@ public class NASAController extends BaseController {
 
 	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern( "yyMMdd" );
 
+	@Autowired
+	private Store store;
+
 	@Value( "${nasa.api.key:}" )
 	private String key;
 
 	@PostMapping( "/apod" )
-	@Async
+	@Cached( value = 1, unit = TimeUnit.HOURS )
+	@Async( Pool.SCRAPE )
 	public void apod( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		LocalDate now = LocalDate.now( ZoneId.of( Zone.NEW_YORK ) ), date = text.isEmpty() ? now : LocalDate.parse( text );
 
 		Check.expr( !date.isBefore( START_DATE ) && !date.isAfter( now ), "Date must be between Jun 16, 1995 and today." );
 
-		Map<?, ?> result = Gson.from( Utils.call( String.format( API_URL, key, date ) ), Map.class );
+		String path = "apod/" + date, json = date.isBefore( now ) ? store.get( path ) : null; // 過去的APOD不會再變動
+
+		String body = json == null ? Utils.call( String.format( API_URL, key, date ) ) : json;
+
+		Map<?, ?> result = Gson.from( body, Map.class );
 
 		String link = Check.nil( Cast.string( result, "url" ), Cast.string( result, "msg" ) ), id = Utils.find( YOUTUBE_REGEX, link );
 
+		if ( json == null && date.isBefore( now ) ) { // 確認不是錯誤訊息才保存
+			store.put( path, body );
+		}
+
 		String title = Cast.string( result, "title" ), html = String.format( WEB_URL, date.format( DATE_TIME_FORMATTER ) );
 
 		message( Slack.attachment( title, html ).setImageUrl( id == null ? link : String.format( YOUTUBE_IMG, id ) ), command, text, url );
@@ -6,8 +6,11 @@ import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.Temporal;
 import java.time.temporal.TemporalUnit;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.EnumUtils;
@@ -20,16 +23,19 @@ import org.springframework.web.bind.annotation.RestController;
 
 import net.gpedro.integrations.slack.SlackAttachment;
 import net.gpedro.integrations.slack.SlackMessage;
+import ninja.aop.Cached;
+import ninja.aop.CommandCache;
 import ninja.consts.Color;
 import ninja.service.THSR;
 import ninja.util.Cast;
 import ninja.util.Check;
+import ninja.util.Fork;
 import ninja.util.Slack;
 import ninja.util.Utils;
 
 @RestController
 public class THSRController extends DialogController {
-	private static final String TIME = "DailyTimetable/OD/%s/to/%s/%s", FARE = "ODFare/%s/to/%s";
+	private static final String TIME = "DailyTimetable/OD/%s/to/%s/%s";
 
 	private static final String TITLE = "高鐵時刻表與票價查詢", LINK = "https://m.thsrc.com.tw/tw/TimeTable/SearchResult";
 
@@ -52,12 +58,18 @@ public class THSRController extends DialogController {
 	protected Object[] args() {
 		String way = options( EnumUtils.getEnumMap( Way.class ).keySet() );
 
-		LocalDateTime time = ( time = LocalDateTime.now( ZONE_ID ) ).truncatedTo( ChronoUnit.HOURS ).plusMinutes( 30 * ( int ) Math.ceil( time.getMinute() / 30d ) );
+		LocalDateTime time = time();
 
 		return ArrayUtils.toArray( TITLE, options( thsr.data().keySet() ), time.toLocalDate(), options( dates() ), time.toLocalTime(), options( times() ), Way.出發, way );
 	}
 
+	@Override
+	protected Object version() { // 預設日期時間每30分鐘變動
+		return Arrays.asList( thsr.version(), time() );
+	}
+
 	@PostMapping( "/thsr" )
+	@Cached( value = 10, unit = TimeUnit.MINUTES )
 	@Async
 	public void thsr( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
 		String[] params = Check.station( Check.params( text, 5 ) );
@@ -70,25 +82,38 @@ public class THSRController extends DialogController {
 
 		SlackAttachment attach1 = Slack.attachment( TITLE, LINK ), attach2 = Slack.attachment( Color.G );
 
-		List<?> fares = Cast.list( thsr.call( String.format( FARE, start, end ) ).get( 0 ), "Fares" );
+		String filter = Utils.spacer( way.field, way.operator, StringUtils.wrap( time, "'" ) ), order = "$orderby=" + Utils.spacer( way.field, way.order );
+
+		Fork fork = Fork.of(); // 票價及時刻表同時查詢
+
+		CompletableFuture<List<Map<String, ?>>> future = fork.fork( () -> thsr.fare( start, end ) );
+
+		CompletableFuture<List<Map<String, ?>>> future2 = fork.fork( () -> thsr.call( String.format( TIME, start, end, date ), filter, order, "$top=4" ) );
+
+		List<?> fares = Cast.list( fork.join( future ).get( 0 ), "Fares" );
 
 		fares.stream().map( Cast::map ).sorted( ( i, j ) -> price( i ).compareTo( price( j ) ) ).limit( 2 ).forEach( i -> {
 			attach1.addFields( field( Cast.string( i, "TicketType" ), "$" + price( i ).intValue() ) );
 		} );
 
-		String filter = Utils.spacer( way.field, way.operator, StringUtils.wrap( time, "'" ) ), order = "$orderby=" + Utils.spacer( way.field, way.order );
+		List<Map<String, ?>> info = fork.join( future2, null ); // 時刻表逾時仍先回覆票價
 
-		List<Map<String, ?>> info = thsr.call( String.format( TIME, start, end, date ), filter, order, "$top=4" );
+		if ( info == null ) {
+			attach2.setText( "時刻表查詢逾時, 請稍後再試" );
 
-		info.forEach( i -> {
-			attach2.addFields( field( "車次", Cast.string( Cast.map( i, "DailyTrainInfo" ), "TrainNo" ) ) );
+			CommandCache.discard();
 
-			attach2.addFields( field( "出發 - 抵達", String.join( " - ", time( i, Way.出發 ), time( i, Way.抵達 ) ) ) );
-		} );
+		} else {
+			info.forEach( i -> {
+				attach2.addFields( field( "車次", Cast.string( Cast.map( i, "DailyTrainInfo" ), "TrainNo" ) ) );
+
+				attach2.addFields( field( "出發 - 抵達", String.join( " - ", time( i, Way.出發 ), time( i, Way.抵達 ) ) ) );
+			} );
+		}
 
 		SlackMessage message = Slack.message( attach1, command, text );
 
-		message( info.size() > 0 ? message.addAttachments( attach2 ) : message, url );
+		message( info == null || info.size() > 0 ? message.addAttachments( attach2 ) : message, url );
 	}
 
 	private String id( String station ) {
@@ -105,6 +130,12 @@ public class THSRController extends DialogController {
 		return Cast.dble( map, "Price" );
 	}
 
+	private LocalDateTime time() { // 下一個整點或半點
+		LocalDateTime time = LocalDateTime.now( ZONE_ID );
+
+		return time.truncatedTo( ChronoUnit.HOURS ).plusMinutes( 30 * ( int ) Math.ceil( time.getMinute() / 30d ) );
+	}
+
 	private List<String> dates() {
 		return iterate( LocalDate.now(), 1, ChronoUnit.DAYS, 14 );
 	}
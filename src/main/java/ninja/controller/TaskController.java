@@ -1,7 +1,12 @@
 package ninja.controller;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -11,11 +16,17 @@ import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import ninja.consts.Act;
 import ninja.consts.Dialog;
 import ninja.consts.Task;
@@ -30,6 +41,10 @@ import ninja.util.Heroku;
 public class TaskController extends BaseController {
 	private static final String COMMAND_METHOD = "chat.command", COMMAND_QUERY = "&command=/%s";
 
+	private static final Class<?>[] ARGS = { String.class, String.class, String.class }; // path, text, url
+
+	private static final MethodType TYPE = MethodType.methodType( void.class, ARGS );
+
 	private enum Type {
 		INTERACTIVE_MESSAGE, DIALOG_SUBMISSION;
 	}
@@ -40,6 +55,8 @@ public class TaskController extends BaseController {
 	@Autowired
 	private ApplicationContext context;
 
+	private volatile Map<String, Handler> handlers = Collections.emptyMap();
+
 	@PostMapping
 	public String task() {
 		return Heroku.task().toString();
@@ -89,19 +106,55 @@ public class TaskController extends BaseController {
 			text = Check.name( Dialog.class, command, payload ).text( submission );
 		}
 
-		Object[] args = { path = "/" + command.toLowerCase(), text, url };
+		Handler handler = handlers.get( path = "/" + command.toLowerCase() );
+
+		if ( handler == null ) {
+			log.error( "查無對應的方法: {}", path );
+
+			return;
+		}
+
+		handler.counter.increment();
+
+		try {
+			handler.handle.invokeExact( path, text, url );
+
+		} catch ( RuntimeException | Error e ) {
+			throw e;
+
+		} catch ( Throwable e ) {
+			throw new RuntimeException( e );
+		}
+	}
+
+	@EventListener( ContextRefreshedEvent.class )
+	public void init() throws IllegalAccessException { // 啟動時建立path對應的MethodHandle, 不再每次掃描handler methods
+		Map<String, Handler> handlers = new HashMap<>();
+
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
 
-		mapping.getHandlerMethods().entrySet().stream().filter( i -> {
-			return String.format( "[%s]", path ).equals( i.getKey().getPatternsCondition().toString() ); // methodsCondition就不比較了, 都是POST
+		for ( Entry<RequestMappingInfo, HandlerMethod> i : mapping.getHandlerMethods().entrySet() ) { // methodsCondition就不比較了, 都是POST
+			Method method = i.getValue().getMethod();
 
-		} ).findFirst().map( Entry::getValue ).ifPresent( i -> { // 不用ParameterNameDiscoverer
-			try {
-				i.getMethod().invoke( context.getBean( i.getBeanType() ), Arrays.copyOfRange( args, args.length - i.getMethodParameters().length, args.length ) );
+			int arity = method.getParameterCount();
 
-			} catch ( IllegalAccessException | IllegalArgumentException | InvocationTargetException e ) {
-				throw new RuntimeException( e );
+			if ( arity > ARGS.length || !Arrays.stream( method.getParameterTypes() ).allMatch( String.class::equals ) ) {
+				continue;
 			}
-		} );
+
+			// bindTo proxy, 才會經過@Async; 參數取path, text, url的後arity個
+			MethodHandle handle = lookup.unreflect( method ).bindTo( context.getBean( i.getValue().getBeanType() ) );
+
+			MethodHandle exact = MethodHandles.dropArguments( handle, 0, Arrays.copyOf( ARGS, ARGS.length - arity ) ).asType( TYPE );
+
+			i.getKey().getPatternsCondition().getPatterns().forEach( j -> {
+				handlers.put( j, new Handler( exact, arity, Metrics.counter( "slack.task", "command", j ) ) );
+			} );
+		}
+
+		log.info( "Handlers: {}", handlers );
+
+		this.handlers = handlers;
 	}
 
 	private <T> T check( List<T> list, String payload ) {
@@ -109,4 +162,23 @@ public class TaskController extends BaseController {
 
 		return list.get( 0 );
 	}
+
+	private static class Handler {
+		private final MethodHandle handle;
+
+		private final int arity;
+
+		private final Counter counter;
+
+		private Handler( MethodHandle handle, int arity, Counter counter ) {
+			this.handle = handle;
+			this.arity = arity;
+			this.counter = counter;
+		}
+
+		@Override
+		public String toString() {
+			return "arity: " + arity;
+		}
+	}
 }
\ No newline at end of file
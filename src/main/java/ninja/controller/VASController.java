@@ -4,10 +4,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -30,6 +31,11 @@ public class VASController extends GroupController<Set<String>> {
         return ArrayUtils.toArray( groups( vas ) );
     }
 
+    @Override
+    protected Object version() {
+        return vas.version();
+    }
+
     @Override
     protected Stream<Map<String, String>> group( Entry<String, Set<String>> entry ) {
         return entry.getValue().stream().map( i -> option( i, Utils.spacer( entry.getKey(), i ) ) );
@@ -38,7 +44,11 @@ public class VASController extends GroupController<Set<String>> {
     @PostMapping( "/vas" )
     @Async
     public void vas( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
-        String[] params = Check.station( Check.params( text ) );
+        String[] params = StringUtils.split( text ); // 院區 科別 [診間 號碼]
+
+        Check.expr( params.length == 2 || params.length == 4, "參數個數有誤: " + text );
+
+        Check.station( params );
 
         String branch = params[ 0 ], division = params[ 1 ];
 
@@ -48,9 +58,26 @@ public class VASController extends GroupController<Set<String>> {
 
         Check.expr( divisions.contains( division ), "查無科別: " + division );
 
-        List<Map<String, String>> data = vas.call().stream().filter( i -> branch.equals( i.get( "Branch" ) ) && division.equals( i.get( "Division" ) ) ).collect( Collectors.toList() );
+        List<Map<String, String>> data = Check.list( vas.rooms( branch, division ), "查無看診資料: " + text );
+
+        if ( params.length == 4 ) {
+            String room = params[ 2 ], current = Check.first( data.stream().filter( i -> room.equals( i.get( "Room" ) ) ), "查無診間: " + room ).get( "Current" );
+
+            int number = NumberUtils.toInt( params[ 3 ], -1 );
+
+            Check.expr( number > 0, "號碼有誤: " + params[ 3 ] );
+
+            if ( NumberUtils.toInt( current ) >= number ) {
+                message( String.format( "%s診間已看診至%s號", room, current ), url );
+
+            } else {
+                vas.subscribe( branch, division, room, number, url );
+
+                message( String.format( "已開始追蹤%s診間, 看診至%d號時將通知您", room, number ), url );
+            }
 
-        Check.list( data, "查無看診資料: " + text );
+            return;
+        }
 
         SlackAttachment attach = Slack.attachment( "三總看診進度查詢", "https://www2.ndmctsgh.edu.tw/PatientNum/" ).setText( tag( branch, division ) );
 
@@ -15,6 +15,7 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -28,6 +29,7 @@ import net.gpedro.integrations.slack.SlackAttachment;
 import net.gpedro.integrations.slack.SlackField;
 import net.gpedro.integrations.slack.SlackMessage;
 import ninja.consts.Color;
+import ninja.service.AsyncHttp;
 import ninja.util.Cast;
 import ninja.util.Check;
 import ninja.util.Gson;
@@ -63,6 +65,9 @@ public class WeatherController extends DialogController {
 		DISTRICTS.put( "文山區", 6300800 );
 	}
 
+	@Autowired
+	private AsyncHttp http;
+
 	@Value( "${cwb.api.key:}" )
 	private String key;
 
@@ -76,9 +81,33 @@ public class WeatherController extends DialogController {
 		return ArrayUtils.toArray( DEFAULT_DIST, options( DISTRICTS.keySet() ), DEFAULT_HOURS, hours );
 	}
 
+	@Override
+	protected Object version() {
+		return FIXED;
+	}
+
 	@PostMapping( "/weather" )
 	@Async
 	public void weather( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
+		message( command, text, () -> { // CWB較慢時先回覆上次的結果
+			String[] query = query( text );
+
+			return message( command, text, query[ 0 ], Utils.call( query[ 1 ] ) );
+
+		}, url );
+	}
+
+	@PostMapping( "/rx/weather" )
+	public void rxWeather( @RequestParam String command, @RequestParam String text, @RequestParam( RESPONSE_URL ) String url ) {
+		reply( () -> {
+			String[] query = query( text );
+
+			return http.get( query[ 1 ] ).thenApply( i -> message( command, text, query[ 0 ], i ) );
+
+		}, url );
+	}
+
+	private String[] query( String text ) { // 回傳行政區及API網址
 		String[] params = Check.params( StringUtils.defaultIfEmpty( text, Utils.spacer( DEFAULT_DIST, DEFAULT_HOURS ) ) );
 
 		String district = StringUtils.appendIfMissing( params[ 0 ], "區" );
@@ -94,9 +123,13 @@ public class WeatherController extends DialogController {
 
 		log.info( "From: {}, to: {}", from, to );
 
-		Map<?, ?> result = Gson.from( Utils.call( API_URL + String.format( QUERY, key, district, from, to ) ), Map.class );
+		return ArrayUtils.toArray( district, API_URL + String.format( QUERY, key, district, from, to ) );
+	}
+
+	private SlackMessage message( String command, String text, String district, String json ) {
+		Map<?, ?> result = Gson.from( json, Map.class );
 
-		SlackMessage message = Slack.message( Slack.attachment( String.format( TITLE, district ), WEB_URL + town ), command, text );
+		SlackMessage message = Slack.message( Slack.attachment( String.format( TITLE, district ), WEB_URL + DISTRICTS.get( district ) ), command, text );
 
 		List<?> elements = Cast.list( first( first( Cast.map( result, "records" ), "locations" ), "location" ), "weatherElement" );
 
@@ -132,7 +165,7 @@ public class WeatherController extends DialogController {
 			message.addAttachments( attach.setText( data[ 0 ] + DELIMITER + wind ) );
 		} );
 
-		message( message, url );
+		return message;
 	}
 
 	private void each( List<?> elements, String name, Consumer<? super Map<?, ?>> action ) {
@@ -4,20 +4,48 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
 
 import com.google.common.net.HttpHeaders;
 
+import ninja.slack.Payload;
+import ninja.util.Gson;
+
 @RestControllerAdvice
 public class Advice {
 	private final Logger log = LoggerFactory.getLogger( this.getClass() );
 
-	private static final String TEMPLATE = "Agent: %s, Address: %s, URI: %s";
+	private static final String TEMPLATE = "Agent: %s, Address: %s, URI: %s", UNKNOWN = "unknown";
+
+	@Autowired
+	private EXHandler handler;
+
+	@ExceptionHandler( TaskRejectedException.class )
+	public void busy( HttpServletRequest request, TaskRejectedException ex ) { // executor佇列已滿
+		log.error( message( request ), ex );
+
+		handler.count( "request", pattern( request ), ex );
+
+		String payload = request.getParameter( "payload" ); // /task/execute的response_url在payload中
+
+		handler.respond( payload == null ? request.getParameter( "response_url" ) : Gson.from( payload, Payload.class ).getUrl(), ex );
+	}
 
 	@ExceptionHandler( Exception.class )
 	public void ex( HttpServletRequest request, Exception ex ) {
 		log.error( message( request ), ex ); // status一律回傳200, 不回傳真實狀態
+
+		handler.count( "request", pattern( request ), ex );
+	}
+
+	private String pattern( HttpServletRequest request ) { // 以對應到的mapping為tag, 不用原始URI, 避免任意路徑讓metric無限增加
+		Object pattern = request.getAttribute( HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE );
+
+		return pattern == null ? UNKNOWN : pattern.toString();
 	}
 
 	private String message( HttpServletRequest request ) {
@@ -8,36 +8,59 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.Metrics;
 import net.gpedro.integrations.slack.SlackMessage;
-import ninja.util.Utils;
+import ninja.service.Outbox;
+import ninja.util.Deadline;
 
+@Component
 public class EXHandler implements AsyncUncaughtExceptionHandler {
 	private final Logger log = LoggerFactory.getLogger( this.getClass() );
 
 	private static final String RESPONSE_URL_REGEX = "https://hooks.slack.com/(commands|actions|app).+"; // 排除services (incoming-webhook)
 
+	@Autowired
+	private Outbox outbox;
+
 	@Override
 	public void handleUncaughtException( Throwable ex, Method method, Object... params ) {
 		log.error( StringUtils.EMPTY, ex );
 
+		count( "async", method.getName(), ex );
+
 		if ( ArrayUtils.isEmpty( params ) ) {
 			return;
 		}
 
-		String uri = params[ params.length - 1 ].toString();
+		respond( params[ params.length - 1 ].toString(), ex );
+	}
 
-		if ( uri.matches( RESPONSE_URL_REGEX ) ) {
-			log.info( Utils.call( uri, new SlackMessage( message( ex ) ) ) );
+	public void respond( String uri, Throwable ex ) { // 經由outbox, 排在同一url先前的回覆之後, 失敗時重試
+		if ( uri != null && uri.matches( RESPONSE_URL_REGEX ) ) {
+			outbox.send( uri, new SlackMessage( message( ex ) ) );
 		}
 	}
 
-	private String message( Throwable ex ) {
+	public void count( String source, String handler, Throwable ex ) { // 依例外類別統計錯誤
+		Metrics.counter( "command.errors", "source", source, "handler", handler, "exception", ex.getClass().getSimpleName() ).increment();
+	}
+
+	public String message( Throwable ex ) {
 		if ( ex instanceof IllegalArgumentException ) {
 			return ex.getMessage();
 
 		} else if ( ex instanceof DateTimeParseException ) {
 			return "時間格式有誤: " + ( ( DateTimeParseException ) ex ).getParsedString();
+
+		} else if ( ex instanceof TaskRejectedException ) {
+			return "系統忙碌中, 請稍後再試";
+
+		} else if ( ex instanceof Deadline.ExceededException ) {
+			return "查詢逾時, 請稍後再試";
 		}
 
 		return "系統忙碌中";
@@ -0,0 +1,228 @@
+package ninja.filter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import ninja.util.Deadline;
+
+@Component
+@Order( Ordered.HIGHEST_PRECEDENCE )
+public class BodyFilter extends OncePerRequestFilter {
+	public static final String BODY = "req_body";
+
+	@Value( "${slack.body.max:262144}" )
+	private int max;
+
+	@Override
+	protected void doFilterInternal( HttpServletRequest request, HttpServletResponse response, FilterChain chain ) throws ServletException, IOException {
+		if ( HttpMethod.POST.matches( request.getMethod() ) ) {
+			byte[] body = request.getContentLengthLong() > max ? null : read( request, max ); // 簽章驗證前, 不可依使用者給的長度配置記憶體
+
+			if ( body == null ) {
+				response.sendError( HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE );
+
+				return;
+			}
+
+			BodyRequest wrapper = new BodyRequest( request, body );
+
+			request.setAttribute( BODY, body );
+
+			request = wrapper;
+		}
+
+		try {
+			chain.doFilter( request, response );
+
+		} finally { // verify設定的deadline不可留給下一個request
+			Deadline.clear();
+		}
+	}
+
+	private static byte[] read( HttpServletRequest request, int max ) throws IOException { // 超過max時回傳null
+		int length = request.getContentLength();
+
+		InputStream input = request.getInputStream();
+
+		if ( length < 0 ) { // chunked, 邊讀邊檢查長度
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+			byte[] buffer = new byte[ 4096 ];
+
+			int count;
+
+			while ( ( count = input.read( buffer ) ) >= 0 ) {
+				if ( output.size() + count > max ) {
+					return null;
+				}
+
+				output.write( buffer, 0, count );
+			}
+
+			return output.toByteArray();
+		}
+
+		byte[] body = new byte[ length ]; // 依Content-Length一次配置, 不經過額外的buffer複製
+
+		int read = 0;
+
+		while ( read < length ) {
+			int count = input.read( body, read, length - read );
+
+			if ( count < 0 ) {
+				return Arrays.copyOf( body, read );
+			}
+
+			read += count;
+		}
+
+		return body;
+	}
+
+	private static class BodyRequest extends HttpServletRequestWrapper { // body只讀一次, 簽章驗證及參數解析都用同一份原始bytes
+		private final byte[] body;
+
+		private Map<String, String[]> parameters;
+
+		private BodyRequest( HttpServletRequest request, byte[] body ) {
+			super( request );
+
+			this.body = body;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			ByteArrayInputStream input = new ByteArrayInputStream( body );
+
+			return new ServletInputStream() {
+				@Override
+				public int read() throws IOException {
+					return input.read();
+				}
+
+				@Override
+				public int read( byte[] b, int off, int len ) throws IOException {
+					return input.read( b, off, len );
+				}
+
+				@Override
+				public boolean isFinished() {
+					return input.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setReadListener( ReadListener listener ) { // 已全部讀進記憶體, 直接通知可讀及讀完
+					try {
+						listener.onDataAvailable();
+
+						listener.onAllDataRead();
+
+					} catch ( IOException e ) {
+						listener.onError( e );
+
+					}
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() {
+			return new BufferedReader( new InputStreamReader( getInputStream(), StandardCharsets.UTF_8 ) );
+		}
+
+		@Override
+		public String getParameter( String name ) {
+			String[] values = getParameterMap().get( name );
+
+			return ArrayUtils.isEmpty( values ) ? null : values[ 0 ];
+		}
+
+		@Override
+		public String[] getParameterValues( String name ) {
+			return getParameterMap().get( name );
+		}
+
+		@Override
+		public Enumeration<String> getParameterNames() {
+			return Collections.enumeration( getParameterMap().keySet() );
+		}
+
+		@Override
+		public Map<String, String[]> getParameterMap() { // 需要時才解析form
+			if ( parameters == null ) {
+				Map<String, String[]> map = new LinkedHashMap<>( super.getParameterMap() ); // query string
+
+				if ( StringUtils.startsWith( getContentType(), MediaType.APPLICATION_FORM_URLENCODED_VALUE ) ) {
+					parse( map );
+				}
+
+				parameters = Collections.unmodifiableMap( map );
+			}
+
+			return parameters;
+		}
+
+		private void parse( Map<String, String[]> map ) {
+			int start = 0;
+
+			for ( int i = 0; i <= body.length; i++ ) {
+				if ( i == body.length || body[ i ] == '&' ) {
+					if ( i > start ) {
+						String pair = new String( body, start, i - start, StandardCharsets.US_ASCII ); // 已urlencoded, 只會有ASCII
+
+						String name = decode( StringUtils.substringBefore( pair, "=" ) ), value = decode( StringUtils.substringAfter( pair, "=" ) );
+
+						map.merge( name, ArrayUtils.toArray( value ), ArrayUtils::addAll );
+					}
+
+					start = i + 1;
+				}
+			}
+		}
+
+		private String decode( String value ) {
+			try {
+				return URLDecoder.decode( value, StandardCharsets.UTF_8.name() );
+
+			} catch ( UnsupportedEncodingException e ) {
+				throw new RuntimeException( e );
+
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package ninja.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.stereotype.Service;
+
+import ninja.util.Upstream;
+
+@Service
+public class AsyncHttp { // 非阻塞HTTP client, 等待上游回應期間不佔用執行緒; 與阻塞呼叫共用Upstream的斷路, bulkhead, deadline及timeout
+	private final CloseableHttpAsyncClient client = HttpAsyncClients.custom().setMaxConnTotal( 200 ).setMaxConnPerRoute( 50 ).build();
+
+	public CompletableFuture<String> get( String uri, Header... headers ) {
+		return Upstream.async( uri, timeout -> {
+			HttpGet request = new HttpGet( uri );
+
+			request.setHeaders( headers );
+
+			return execute( request, timeout );
+		} );
+	}
+
+	@PostConstruct
+	private void init() {
+		client.start();
+	}
+
+	@PreDestroy
+	private void destroy() throws IOException {
+		client.close();
+	}
+
+	private CompletableFuture<String> execute( HttpRequestBase request, int timeout ) {
+		CompletableFuture<String> future = new CompletableFuture<>();
+
+		request.setConfig( RequestConfig.custom().setConnectTimeout( timeout ).setSocketTimeout( timeout ).build() );
+
+		client.execute( request, new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed( HttpResponse response ) { // 回應已完整讀入記憶體, 不會阻塞I/O執行緒
+				try {
+					String body = response.getEntity() == null ? null : EntityUtils.toString( response.getEntity(), StandardCharsets.UTF_8 );
+
+					if ( response.getStatusLine().getStatusCode() / 100 == 2 ) {
+						future.complete( body );
+
+					} else {
+						future.completeExceptionally( new HttpResponseException( response.getStatusLine().getStatusCode(), response.getStatusLine() + ", uri: " + request.getURI() + ", body: " + body ) ); // 5xx才算上游失敗
+					}
+
+				} catch ( IOException e ) {
+					future.completeExceptionally( e );
+
+				}
+			}
+
+			@Override
+			public void failed( Exception ex ) {
+				future.completeExceptionally( ex );
+			}
+
+			@Override
+			public void cancelled() {
+				future.cancel( false );
+			}
+		} );
+
+		return future;
+	}
+}
@@ -1,6 +1,5 @@
 package ninja.service;
 
-import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -19,8 +18,8 @@ public class Bus extends PTX {
 	private static final String ROUTE_ID_REGEX = "javascript:go\\('(.+?)'\\)", PATH = "Bus/%s/City/Taipei", QUOTE = "\"";
 
 	@Override
-	public List<Map<String, ?>> call( String path, String filter, String... query ) {
-		return super.call( String.format( PATH, path ), filter, query );
+	protected String path( String path ) {
+		return String.format( PATH, path );
 	}
 
 	public Stream<String> stops( Map<String, ?> map, Function<? super Map<?, ?>, ? extends String> mapper ) {
@@ -2,6 +2,7 @@ package ninja.service;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 
@@ -9,11 +10,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
 public abstract class Data<T> {
 	private final Logger log = LoggerFactory.getLogger( this.getClass() );
 
 	private final Map<String, T> data = new LinkedHashMap<>();
 
+	private final AtomicLong version = new AtomicLong();
+
 	@Autowired
 	private Initializer initializer;
 
@@ -21,16 +27,28 @@ public abstract class Data<T> {
 		if ( data.isEmpty() ) {
 			log.error( "資料初始化: {}", getClass() );
 
-			init( data );
+			load( data );
 		}
 
 		return data;
 	}
 
+	public long version() { // 每次載入完成後遞增, 供依資料產生的快取判斷是否失效
+		return version.get();
+	}
+
+	void load( Map<String, T> data ) {
+		Metrics.timer( "data.load", "name", getClass().getSimpleName() ).record( () -> init( data ) );
+
+		version.incrementAndGet();
+	}
+
 	abstract void init( Map<String, T> data );
 
 	@PostConstruct
 	private void init() {
+		Metrics.gauge( "data.size", Tags.of( "name", getClass().getSimpleName() ), data, Map::size );
+
 		initializer.init( this, data );
 	};
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package ninja.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import ninja.util.Cast;
+import ninja.util.Gson;
+import ninja.util.Utils;
+
+@Service
+public class Dict {
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final String GRAMMAR_URL = "http://api.grammarbot.io/v2/check?api_key=%s&text=%s&language=en-US";
+
+	private static final String DICT_TEMPLATE = "%1$s：<https://tw.dictionary.search.yahoo.com/search?p=%2$s|*%2$s*>\n";
+
+	private static final String QUERY_TITLE = "您查詢的單字是", CHECK_TITLE = "您是不是要查";
+
+	@Value( "${grammar.api.key:}" )
+	private String key;
+
+	@Value( "${grammar.fallback:true}" )
+	private boolean fallback;
+
+	@Value( "${dict.cache.size:10000}" )
+	private long size;
+
+	@Value( "${dict.cache.ttl:1440}" )
+	private long ttl;
+
+	@Autowired
+	private Spell spell;
+
+	private LoadingCache<String, String> cache;
+
+	public String translate( String text ) {
+		String word = text.toLowerCase( Locale.ROOT ); // 以小寫單字為key
+
+		try {
+			return cache.getUnchecked( word );
+
+		} catch ( UncheckedExecutionException e ) { // grammarbot失敗時不快取, 只回傳查詢連結
+			log.error( StringUtils.EMPTY, e.getCause() );
+
+			return dict( QUERY_TITLE, word );
+		}
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	@PostConstruct
+	private void init() {
+		cache = CacheBuilder.newBuilder().maximumSize( size ).expireAfterWrite( ttl, TimeUnit.MINUTES ).recordStats().build( CacheLoader.from( this::load ) );
+
+		GuavaCacheMetrics.monitor( Metrics.globalRegistry, cache, "dict" );
+	}
+
+	private String load( String text ) { // 本地字典不完整, 字典沒有的字一律交給grammarbot, 避免把合法單字誤改成相近的常用字; 未設定grammarbot時才用本地候選字
+		String value = spell.contains( text ) ? StringUtils.EMPTY : fallback && !key.isEmpty() ? grammar( text ) : StringUtils.defaultString( spell.suggest( text ) );
+
+		return ( value.isEmpty() ? StringUtils.EMPTY : dict( CHECK_TITLE, value ) ) + dict( QUERY_TITLE, text );
+	}
+
+	private String grammar( String text ) { // 失敗時直接拋出, 不快取
+		String uri = String.format( GRAMMAR_URL, key, text );
+
+		return Utils.join( Cast.list( Gson.from( Utils.call( uri ), Map.class ), "matches" ).stream().flatMap( i -> {
+			return Cast.list( Cast.map( i ), "replacements" ).stream();
+
+		} ).limit( 1 ).map( i -> Cast.string( Cast.map( i ), "value" ) ), StringUtils.SPACE );
+	}
+
+	private String dict( String title, String text ) {
+		return String.format( DICT_TEMPLATE, title, text );
+	}
+}
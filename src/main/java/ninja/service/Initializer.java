@@ -5,10 +5,12 @@ import java.util.Map;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import ninja.consts.Pool;
+
 @Service
 public class Initializer {
-    @Async
+    @Async( Pool.DATA )
     public <T> void init( Data<T> data, Map<String, T> map ) {
-        data.init( map );
+        data.load( map );
     }
 }
\ No newline at end of file
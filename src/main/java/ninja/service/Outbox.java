@@ -0,0 +1,231 @@
+package ninja.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import net.gpedro.integrations.slack.SlackMessage;
+import ninja.util.Gson;
+import ninja.util.Upstream;
+import ninja.util.Utils;
+
+@Service
+public class Outbox {
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final String METRIC = "slack.outbox";
+
+	private final Map<String, Queue<Delivery>> pending = new HashMap<>(); // 每個url一個佇列, 同時只送出開頭的一則以保持順序
+
+	private final Timer latency = Metrics.timer( METRIC + ".latency" );
+
+	private ScheduledExecutorService executor;
+
+	private Semaphore capacity;
+
+	@Value( "${outbox.threads:4}" )
+	private int threads;
+
+	@Value( "${outbox.queue.size:2000}" ) // 所有url合計
+	private int size;
+
+	@Value( "${outbox.retries:3}" )
+	private int retries;
+
+	@Value( "${outbox.backoff:1000}" )
+	private long backoff;
+
+	public void send( String url, SlackMessage message ) { // 先轉為JsonObject, 之後message可再被修改
+		send( url, Utils.json( message ) );
+	}
+
+	public void send( String url, JsonObject json ) {
+		if ( executor.isShutdown() ) {
+			throw new RejectedExecutionException( "Outbox is shut down" );
+		}
+
+		if ( !capacity.tryAcquire() ) {
+			Metrics.counter( METRIC, "result", "blocked" ).increment();
+
+			try { // 佇列已滿時讓呼叫端等待, 作為backpressure
+				capacity.acquire();
+
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+
+				throw new RejectedExecutionException( e );
+			}
+		}
+
+		Delivery delivery = new Delivery( url, json );
+
+		boolean first;
+
+		synchronized ( pending ) {
+			Queue<Delivery> queue = pending.computeIfAbsent( url, i -> new ArrayDeque<>() );
+
+			first = queue.isEmpty();
+
+			queue.add( delivery );
+		}
+
+		if ( first ) {
+			schedule( delivery, 0 );
+		}
+	}
+
+	@PostConstruct
+	private void init() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( threads, new ThreadFactoryBuilder().setNameFormat( "outbox-%d" ).build() );
+
+		executor.setRemoveOnCancelPolicy( true );
+
+		this.executor = executor;
+
+		capacity = new Semaphore( size );
+
+		Metrics.gauge( METRIC + ".queue", capacity, i -> size - i.availablePermits() );
+	}
+
+	@PreDestroy
+	private void destroy() throws InterruptedException { // 已排定的重送仍會執行
+		executor.shutdown();
+
+		executor.awaitTermination( 30, TimeUnit.SECONDS );
+	}
+
+	private void schedule( Delivery delivery, long delay ) {
+		try {
+			executor.schedule( () -> deliver( delivery ), delay, TimeUnit.MILLISECONDS );
+
+		} catch ( RejectedExecutionException e ) {
+			log.error( "Delivery dropped, url: {}, json: {}", delivery.url, delivery.json );
+
+			Metrics.counter( METRIC, "result", "failed" ).increment();
+
+			next( delivery );
+		}
+	}
+
+	private void deliver( Delivery delivery ) { // 每次只送一次, 重送另外排定, 不佔用執行緒等待
+		int status;
+
+		String body;
+
+		try { // 經過Upstream的斷路及bulkhead, 斷路或滿載時視同連線失敗, 稍後重送
+			HttpResponse response = Upstream.call( delivery.url, () -> {
+				int timeout = Upstream.timeout( delivery.url ); // 依Slack近期的回應時間調整
+
+				HttpResponse result = Request.Post( delivery.url ).body( Gson.entity( delivery.json ) ).connectTimeout( timeout ).socketTimeout( timeout ).execute().returnResponse();
+
+				if ( result.getStatusLine().getStatusCode() / 100 == 5 ) { // 讓Upstream計入失敗
+					throw new HttpResponseException( result.getStatusLine().getStatusCode(), EntityUtils.toString( result.getEntity(), StandardCharsets.UTF_8 ) );
+				}
+
+				return result;
+			} );
+
+			status = response.getStatusLine().getStatusCode();
+
+			body = response.getEntity() == null ? null : EntityUtils.toString( response.getEntity(), StandardCharsets.UTF_8 );
+
+		} catch ( IOException | RuntimeException e ) { // 不可讓例外中斷佇列
+			status = Throwables.getCausalChain( e ).stream().filter( HttpResponseException.class::isInstance ).mapToInt( i -> ( ( HttpResponseException ) i ).getStatusCode() ).findFirst().orElse( 0 );
+
+			body = e.getMessage();
+		}
+
+		if ( status / 100 == 2 ) {
+			log.info( "Delivered: {}, attempt: {}", body, delivery.attempt + 1 );
+
+			Metrics.counter( METRIC, "result", "delivered" ).increment();
+
+			latency.record( System.nanoTime() - delivery.start, TimeUnit.NANOSECONDS );
+
+			next( delivery );
+
+			return;
+		}
+
+		boolean retry = status == 0 || status == HttpStatus.TOO_MANY_REQUESTS.value() || status / 100 == 5; // 4xx(除429)重送也不會成功
+
+		if ( !retry || delivery.attempt >= retries ) {
+			log.error( "Delivery failed, status: {}, body: {}, url: {}, json: {}", status, body, delivery.url, delivery.json );
+
+			Metrics.counter( METRIC, "result", "failed" ).increment();
+
+			next( delivery );
+
+			return;
+		}
+
+		Metrics.counter( METRIC, "result", "retry" ).increment();
+
+		long delay = backoff << delivery.attempt++; // exponential backoff, 等待時間在一半至全部間隨機
+
+		schedule( delivery, delay / 2 + ThreadLocalRandom.current().nextLong( delay / 2 + 1 ) );
+	}
+
+	private void next( Delivery delivery ) { // 開頭的一則已送達或放棄, 接著送同一url的下一則
+		capacity.release();
+
+		Delivery next;
+
+		synchronized ( pending ) {
+			Queue<Delivery> queue = pending.get( delivery.url );
+
+			queue.poll();
+
+			if ( ( next = queue.peek() ) == null ) {
+				pending.remove( delivery.url );
+			}
+		}
+
+		if ( next != null ) {
+			schedule( next, 0 );
+		}
+	}
+
+	private static class Delivery {
+		private final String url;
+
+		private final JsonObject json;
+
+		private final long start = System.nanoTime();
+
+		private int attempt;
+
+		private Delivery( String url, JsonObject json ) {
+			this.url = url;
+			this.json = json;
+		}
+	}
+}
@@ -7,11 +7,15 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.http.Header;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.message.BasicHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import com.google.common.net.HttpHeaders;
@@ -31,6 +35,9 @@ public abstract class PTX extends Data<String> {
 
 	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern( "EEE, dd MMM yyyy HH:mm:ss z", Locale.US );
 
+	@Autowired
+	private AsyncHttp http;
+
 	@Value( "${ptx.app.id:}" )
 	private String id;
 
@@ -38,15 +45,21 @@ public abstract class PTX extends Data<String> {
 	private String key;
 
 	public List<Map<String, ?>> call( String path, String filter, String... query ) {
-		String xdate = ZonedDateTime.now( ZoneId.of( "GMT" ) ).format( DATE_TIME_FORMATTER ), uri;
+		String uri = uri( path, filter, query );
 
-		String signature = Base64.getEncoder().encodeToString( Signature.hmac( "x-date: " + xdate, key, HmacAlgorithms.HMAC_SHA_1 ) );
+		return Gson.list( Utils.call( uri, () -> { // 每次送出重新簽章
+			Request request = Request.Get( uri );
 
-		log.info( "Uri: {}", uri = UrlEscapers.urlFragmentEscaper().escape( String.format( API_URL, path, filter, String.join( "&", query ) ) ) );
+			for ( Header header : headers() ) {
+				request.addHeader( header );
+			}
 
-		Request request = Request.Get( uri ).addHeader( HttpHeaders.AUTHORIZATION, String.format( AUTH_HEADER, id, signature ) ).addHeader( "x-date", xdate );
+			return request.addHeader( HttpHeaders.ACCEPT_ENCODING, "gzip" );
+		} ) );
+	}
 
-		return Gson.list( Utils.call( request.addHeader( HttpHeaders.ACCEPT_ENCODING, "gzip" ) ) );
+	public CompletableFuture<List<Map<String, ?>>> future( String path, String filter, String... query ) { // 非阻塞版本, 不要求gzip
+		return http.get( uri( path, filter, query ), headers() ).thenApply( Gson::list );
 	}
 
 	public String station( Map<?, ?> map ) {
@@ -56,4 +69,24 @@ public abstract class PTX extends Data<String> {
 	public String name( Map<?, ?> map, String key ) {
 		return Cast.string( Cast.map( map, key ), "Zh_tw" );
 	}
+
+	protected String path( String path ) {
+		return path;
+	}
+
+	private String uri( String path, String filter, String... query ) {
+		String uri = UrlEscapers.urlFragmentEscaper().escape( String.format( API_URL, path( path ), filter, String.join( "&", query ) ) );
+
+		log.info( "Uri: {}", uri );
+
+		return uri;
+	}
+
+	private Header[] headers() {
+		String xdate = ZonedDateTime.now( ZoneId.of( "GMT" ) ).format( DATE_TIME_FORMATTER );
+
+		String signature = Base64.getEncoder().encodeToString( Signature.hmac( "x-date: " + xdate, key, HmacAlgorithms.HMAC_SHA_1 ) );
+
+		return new Header[] { new BasicHeader( HttpHeaders.AUTHORIZATION, String.format( AUTH_HEADER, id, signature ) ), new BasicHeader( "x-date", xdate ) };
+	}
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package ninja.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import ninja.util.Gson;
+import ninja.util.Upstream;
+
+@Service
+public class SlackAPI {
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final String API_URL = "https://slack.com/api/";
+
+	private static final long REJECTED_DELAY = 100; // bulkhead已滿時, 稍後再送的毫秒數
+
+	private enum Tier { // 每分鐘可呼叫次數, chat.postMessage為每秒1則
+		TIER2( 20 ), TIER3( 50 ), TIER4( 100 ), SPECIAL( 60 );
+
+		private final int rate;
+
+		private Tier( int rate ) {
+			this.rate = rate;
+		}
+	}
+
+	private static final Map<String, Tier> TIERS = ImmutableMap.of( "chat.delete", Tier.TIER3, "conversations.history", Tier.TIER3, "chat.postMessage", Tier.SPECIAL, "dialog.open", Tier.TIER4, "views.publish", Tier.TIER4 );
+
+	private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactoryBuilder().setNameFormat( "slack-api-scheduler" ).build() );
+
+	private final ExecutorService executor = Executors.newCachedThreadPool( new ThreadFactoryBuilder().setNameFormat( "slack-api-%d" ).build() );
+
+	public CompletableFuture<String> get( String method, String token, String query ) {
+		return submit( method, token, () -> Request.Get( API_URL + method + query ) );
+	}
+
+	public CompletableFuture<String> post( String method, String token, Object src ) {
+		return submit( method, token, () -> {
+			return Request.Post( API_URL + method ).setHeader( HttpHeaders.AUTHORIZATION, "Bearer " + token ).body( Gson.entity( src ) );
+		} );
+	}
+
+	public static String join( CompletableFuture<String> future ) {
+		try {
+			return future.join();
+
+		} catch ( CompletionException e ) {
+			throw e.getCause() instanceof RuntimeException ? ( RuntimeException ) e.getCause() : e;
+
+		}
+	}
+
+	@PreDestroy
+	private void destroy() {
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	private CompletableFuture<String> submit( String method, String token, Supplier<Request> request ) { // 依method及workspace(token)排隊, 不讓呼叫端sleep
+		Bucket bucket = buckets.computeIfAbsent( method + ":" + token, i -> new Bucket( method, TIERS.getOrDefault( method, Tier.TIER2 ) ) );
+
+		Call call = new Call( request );
+
+		bucket.calls.offer( call );
+
+		drain( bucket );
+
+		return call.future;
+	}
+
+	private void drain( Bucket bucket ) {
+		Call call;
+
+		long wait;
+
+		while ( ( wait = bucket.acquire() ) == 0 ) {
+			if ( ( call = bucket.calls.poll() ) == null ) {
+				bucket.release();
+
+				return;
+			}
+
+			Call current = call;
+
+			executor.execute( () -> execute( bucket, current ) );
+		}
+
+		if ( !bucket.calls.isEmpty() && bucket.schedule() ) {
+			scheduler.schedule( () -> {
+				bucket.scheduled = false;
+
+				drain( bucket );
+
+			}, wait, TimeUnit.MILLISECONDS );
+		}
+	}
+
+	private void execute( Bucket bucket, Call call ) { // 經過Upstream的斷路及bulkhead, timeout依Slack近期的回應時間調整
+		try {
+			HttpResponse response = Upstream.call( API_URL, () -> {
+				int timeout = Upstream.timeout( API_URL );
+
+				HttpResponse result = call.request.get().connectTimeout( timeout ).socketTimeout( timeout ).execute().returnResponse();
+
+				if ( HttpStatus.Series.valueOf( result.getStatusLine().getStatusCode() ) == HttpStatus.Series.SERVER_ERROR ) { // 讓Upstream計入失敗
+					throw new HttpResponseException( result.getStatusLine().getStatusCode(), result.getStatusLine() + ", body: " + EntityUtils.toString( result.getEntity(), StandardCharsets.UTF_8 ) );
+				}
+
+				return result;
+			} );
+
+			int status = response.getStatusLine().getStatusCode();
+
+			String body = response.getEntity() == null ? null : EntityUtils.toString( response.getEntity(), StandardCharsets.UTF_8 );
+
+			if ( status == HttpStatus.TOO_MANY_REQUESTS.value() ) {
+				Header header = response.getFirstHeader( HttpHeaders.RETRY_AFTER );
+
+				long seconds = NumberUtils.toLong( header == null ? null : header.getValue(), 1 );
+
+				log.warn( "Rate limited: {}, retry after: {}s", bucket.method, seconds );
+
+				bucket.block( TimeUnit.SECONDS.toMillis( seconds ) );
+
+				bucket.calls.offerFirst( call );
+
+				drain( bucket );
+
+			} else if ( HttpStatus.Series.valueOf( status ) == HttpStatus.Series.SUCCESSFUL ) {
+				call.future.complete( body );
+
+			} else {
+				call.future.completeExceptionally( new IllegalStateException( response.getStatusLine() + ", body: " + body ) );
+			}
+
+		} catch ( Upstream.RejectedException e ) { // 不算失敗, 歸還token後稍後重新排隊
+			bucket.release();
+
+			scheduler.schedule( () -> {
+				bucket.calls.offerFirst( call );
+
+				drain( bucket );
+
+			}, REJECTED_DELAY, TimeUnit.MILLISECONDS );
+
+		} catch ( IOException | RuntimeException e ) {
+			call.future.completeExceptionally( e instanceof IOException ? new IllegalStateException( e ) : e );
+
+		}
+	}
+
+	private static class Call {
+		private final Supplier<Request> request;
+
+		private final CompletableFuture<String> future = new CompletableFuture<>();
+
+		private Call( Supplier<Request> request ) {
+			this.request = request;
+		}
+	}
+
+	private static class Bucket { // token bucket, 容量為一分鐘的額度
+		private final String method;
+
+		private final double capacity, rate;
+
+		private final Deque<Call> calls = new ConcurrentLinkedDeque<>();
+
+		private double tokens;
+
+		private long time = System.currentTimeMillis(), blocked;
+
+		private volatile boolean scheduled;
+
+		private Bucket( String method, Tier tier ) {
+			this.method = method;
+			this.capacity = tokens = tier.rate;
+			this.rate = tier.rate / 60000d;
+		}
+
+		private synchronized long acquire() { // 回傳0代表取得token, 否則為需等待的毫秒數
+			long now = System.currentTimeMillis();
+
+			if ( now < blocked ) {
+				return blocked - now;
+			}
+
+			tokens = Math.min( capacity, tokens + ( now - time ) * rate );
+
+			time = now;
+
+			if ( tokens >= 1 ) {
+				tokens--;
+
+				return 0;
+			}
+
+			return ( long ) Math.ceil( ( 1 - tokens ) / rate );
+		}
+
+		private synchronized void release() {
+			tokens = Math.min( capacity, tokens + 1 );
+		}
+
+		private synchronized void block( long millis ) {
+			blocked = Math.max( blocked, System.currentTimeMillis() + millis );
+
+			tokens = 0;
+		}
+
+		private synchronized boolean schedule() {
+			return !scheduled && ( scheduled = true );
+		}
+	}
+}
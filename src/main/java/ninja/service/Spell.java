@@ -0,0 +1,229 @@
+package ninja.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class Spell {
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final String WORDS = "/dict/words.txt";
+
+	private static final byte[] LETTERS = "abcdefghijklmnopqrstuvwxyz".getBytes( StandardCharsets.US_ASCII );
+
+	private static final String[][] SUFFIXES = { { "ies", "y" }, { "es", "" }, { "s", "" }, { "ied", "y" }, { "ed", "e" }, { "ed", "" }, { "ing", "e" }, { "ing", "" }, { "ly", "" }, { "er", "" }, { "est", "" } };
+
+	@Value( "${spell.rank.max:3000}" )
+	private int max;
+
+	private MappedByteBuffer buffer; // 字典依詞頻排列, 排序後寫入暫存檔以mmap讀取: [count][offset * (count + 1)][rank * count][words]
+
+	private int count, words;
+
+	public boolean contains( String word ) { // 字典只有原形, 去掉常見字尾(複數, 過去式, 進行式等)後再查一次
+		String lower = word.toLowerCase( Locale.ROOT );
+
+		if ( find( lower ) ) {
+			return true;
+		}
+
+		for ( String[] suffix : SUFFIXES ) {
+			if ( lower.length() > suffix[ 0 ].length() + 1 && lower.endsWith( suffix[ 0 ] ) && find( lower.substring( 0, lower.length() - suffix[ 0 ].length() ) + suffix[ 1 ] ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public String suggest( String word ) { // 以編輯距離1的候選字取詞頻最高者, 字典已有此字, 查無候選字或候選字不夠常見時回傳null
+		if ( contains( word ) ) {
+			return null;
+		}
+
+		byte[] bytes = bytes( word ), buf = new byte[ bytes.length + 1 ];
+
+		int length = bytes.length, best = -1;
+
+		for ( int i = 0; i < length; i++ ) { // deletes
+			System.arraycopy( bytes, 0, buf, 0, i );
+			System.arraycopy( bytes, i + 1, buf, i, length - i - 1 );
+
+			best = best( best, buf, length - 1 );
+		}
+
+		for ( int i = 0; i < length - 1; i++ ) { // transposes
+			System.arraycopy( bytes, 0, buf, 0, length );
+
+			buf[ i ] = bytes[ i + 1 ];
+			buf[ i + 1 ] = bytes[ i ];
+
+			best = best( best, buf, length );
+		}
+
+		for ( int i = 0; i < length; i++ ) { // replaces
+			System.arraycopy( bytes, 0, buf, 0, length );
+
+			for ( byte letter : LETTERS ) {
+				if ( letter != bytes[ i ] ) {
+					buf[ i ] = letter;
+
+					best = best( best, buf, length );
+				}
+			}
+		}
+
+		for ( int i = 0; i <= length; i++ ) { // inserts
+			System.arraycopy( bytes, 0, buf, 0, i );
+			System.arraycopy( bytes, i, buf, i + 1, length - i );
+
+			for ( byte letter : LETTERS ) {
+				buf[ i ] = letter;
+
+				best = best( best, buf, length + 1 );
+			}
+		}
+
+		return best < 0 || rank( best ) >= max ? null : word( best );
+	}
+
+	@PostConstruct
+	private void init() throws IOException {
+		Map<String, Integer> ranks = new LinkedHashMap<>();
+
+		try ( BufferedReader reader = new BufferedReader( new InputStreamReader( getClass().getResourceAsStream( WORDS ), StandardCharsets.US_ASCII ) ) ) {
+			reader.lines().map( String::trim ).filter( i -> i.matches( "[a-z]+" ) ).forEach( i -> ranks.putIfAbsent( i, ranks.size() ) );
+		}
+
+		List<String> sorted = new ArrayList<>( ranks.keySet() );
+
+		sorted.sort( Comparator.naturalOrder() );
+
+		int size = sorted.size(), length = sorted.stream().mapToInt( String::length ).sum();
+
+		ByteBuffer data = ByteBuffer.allocate( Integer.BYTES * ( size * 2 + 2 ) + length );
+
+		data.putInt( size );
+
+		int offset = 0;
+
+		for ( String word : sorted ) {
+			data.putInt( offset );
+
+			offset += word.length();
+		}
+
+		data.putInt( offset );
+
+		sorted.forEach( i -> data.putInt( ranks.get( i ) ) );
+
+		sorted.forEach( i -> data.put( i.getBytes( StandardCharsets.US_ASCII ) ) );
+
+		Path path = Files.createTempFile( "words", ".idx" );
+
+		path.toFile().deleteOnExit();
+
+		Files.write( path, data.array() );
+
+		try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+			buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+		}
+
+		count = buffer.getInt( 0 );
+
+		words = Integer.BYTES * ( count * 2 + 2 );
+
+		log.info( "Words: {}, index: {} bytes", count, buffer.capacity() );
+	}
+
+	private int best( int best, byte[] buf, int length ) {
+		int index = find( buf, length );
+
+		return index >= 0 && ( best < 0 || rank( index ) < rank( best ) ) ? index : best;
+	}
+
+	private boolean find( String word ) {
+		byte[] bytes = bytes( word );
+
+		return find( bytes, bytes.length ) >= 0;
+	}
+
+	private int find( byte[] word, int length ) {
+		int low = 0, high = count - 1;
+
+		while ( low <= high ) {
+			int mid = ( low + high ) >>> 1, compare = compare( mid, word, length );
+
+			if ( compare < 0 ) {
+				low = mid + 1;
+
+			} else if ( compare > 0 ) {
+				high = mid - 1;
+
+			} else {
+				return mid;
+			}
+		}
+
+		return -1;
+	}
+
+	private int compare( int index, byte[] word, int length ) {
+		int offset = offset( index ), size = offset( index + 1 ) - offset;
+
+		for ( int i = 0, min = Math.min( size, length ); i < min; i++ ) {
+			int diff = buffer.get( words + offset + i ) - word[ i ];
+
+			if ( diff != 0 ) {
+				return diff;
+			}
+		}
+
+		return size - length;
+	}
+
+	private int offset( int index ) {
+		return buffer.getInt( Integer.BYTES * ( index + 1 ) );
+	}
+
+	private int rank( int index ) {
+		return buffer.getInt( Integer.BYTES * ( count + 2 + index ) );
+	}
+
+	private String word( int index ) {
+		int offset = offset( index );
+
+		byte[] bytes = new byte[ offset( index + 1 ) - offset ];
+
+		for ( int i = 0; i < bytes.length; i++ ) {
+			bytes[ i ] = buffer.get( words + offset + i );
+		}
+
+		return new String( bytes, StandardCharsets.US_ASCII );
+	}
+
+	private byte[] bytes( String word ) {
+		return word.toLowerCase( Locale.ROOT ).getBytes( StandardCharsets.US_ASCII );
+	}
+}
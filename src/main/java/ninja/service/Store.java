@@ -0,0 +1,449 @@
+package ninja.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Metrics;
+
+@Service
+public class Store { // 不會再變動的上游資料: key的SHA-256 -> gzip後的內容, append到segment檔案, 索引放在記憶體; 寫入後永久保存, 超過上限時只壓縮掉無效的紀錄, 不淘汰
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final String SUFFIX = ".seg", SEGMENT = "%08d" + SUFFIX, TEMP = ".tmp";
+
+	private static final int HASH = 32, HEADER = HASH + Integer.BYTES; // 每筆紀錄: hash, 長度, 內容
+
+	private final Map<HashCode, Location> index = new ConcurrentHashMap<>();
+
+	private final NavigableMap<Integer, FileChannel> segments = new ConcurrentSkipListMap<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final AtomicLong live = new AtomicLong(); // 索引中紀錄的bytes, 其餘為讀取失敗後重寫或重複的無效紀錄
+
+	private final AtomicBoolean compacting = new AtomicBoolean();
+
+	private final ExecutorService compactor = Executors.newSingleThreadExecutor( new ThreadFactoryBuilder().setNameFormat( "store-compact" ).setDaemon( true ).build() );
+
+	@Value( "${store.dir:store}" )
+	private String dir;
+
+	@Value( "${store.segment.bytes:16777216}" )
+	private long size;
+
+	@Value( "${store.max.bytes:268435456}" )
+	private long max;
+
+	@Value( "${store.preload:}" )
+	private String preload;
+
+	public String get( String key ) {
+		HashCode hash = hash( key );
+
+		lock.readLock().lock();
+
+		Location location = index.get( hash );
+
+		Metrics.counter( "store", "result", location == null ? "miss" : "hit" ).increment();
+
+		if ( location == null ) {
+			lock.readLock().unlock();
+
+			return null;
+		}
+
+		try ( InputStream input = new GZIPInputStream( new ByteArrayInputStream( read( segments.get( location.segment ), location.offset + HEADER, location.length ) ) ) ) {
+			return StreamUtils.copyToString( input, StandardCharsets.UTF_8 );
+
+		} catch ( IOException | RuntimeException e ) { // 讀不到就當作沒有, 之後重新抓取
+			log.error( "Read failed: " + key, e );
+
+			if ( index.remove( location.hash, location ) ) {
+				live.addAndGet( -( HEADER + location.length ) );
+			}
+
+			return null;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void put( String key, String value ) { // 已存在時不寫入
+		HashCode hash = hash( key );
+
+		if ( index.containsKey( hash ) ) {
+			return;
+		}
+
+		try {
+			append( hash, gzip( value ) );
+
+		} catch ( IOException e ) {
+			log.error( "Write failed: " + key, e );
+
+		}
+
+		long bytes = bytes();
+
+		if ( bytes > max && ( bytes - live.get() ) * 4 >= bytes && compacting.compareAndSet( false, true ) ) { // 無效的紀錄達1/4才壓縮, 避免都是有效資料時反覆壓縮
+			compactor.execute( () -> {
+				try {
+					compact();
+
+				} finally {
+					compacting.set( false );
+				}
+			} );
+		}
+	}
+
+	public void preload( Path path ) throws IOException { // 匯入其他store的segment檔案(或目錄), 例如隨程式部署的資料
+		List<Path> files;
+
+		try ( Stream<Path> stream = Files.isDirectory( path ) ? Files.list( path ) : Stream.of( path ) ) {
+			files = stream.filter( i -> i.toString().endsWith( SUFFIX ) ).sorted().collect( Collectors.toList() );
+		}
+
+		for ( Path file : files ) {
+			try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+				scan( channel, ( hash, location ) -> {
+					if ( !index.containsKey( hash ) ) {
+						try {
+							append( hash, read( channel, location.offset + HEADER, location.length ) );
+
+						} catch ( IOException e ) {
+							throw new IllegalStateException( e );
+						}
+					}
+				} );
+			}
+		}
+
+		log.info( "Preloaded: {}, records: {}", path, index.size() );
+	}
+
+	@PostConstruct
+	private void init() throws IOException {
+		Files.createDirectories( Paths.get( dir ) );
+
+		try ( Stream<Path> stream = Files.list( Paths.get( dir ) ) ) { // 壓縮中斷留下的暫存檔
+			for ( Path file : stream.filter( i -> i.toString().endsWith( TEMP ) ).collect( Collectors.toList() ) ) {
+				Files.delete( file );
+			}
+		}
+
+		Metrics.gauge( "store.bytes", this, Store::bytes );
+		Metrics.gauge( "store.records", index, Map::size );
+
+		List<Path> files;
+
+		try ( Stream<Path> stream = Files.list( Paths.get( dir ) ) ) {
+			files = stream.filter( i -> i.toString().endsWith( SUFFIX ) ).sorted().collect( Collectors.toList() );
+		}
+
+		for ( Path file : files ) { // 重建索引, 不完整的結尾(寫入中斷)截掉
+			int segment = Integer.parseInt( StringUtils.removeEnd( file.getFileName().toString(), SUFFIX ) );
+
+			FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE );
+
+			segments.put( segment, channel );
+
+			channel.truncate( scan( channel, ( hash, location ) -> {
+				if ( index.putIfAbsent( hash, new Location( hash, segment, location.offset, location.length ) ) == null ) {
+					live.addAndGet( HEADER + location.length );
+				}
+			} ) );
+		}
+
+		log.info( "Segments: {}, records: {}, bytes: {}", segments.size(), index.size(), bytes() );
+
+		if ( !preload.isEmpty() ) {
+			for ( String path : StringUtils.split( preload, "," ) ) {
+				preload( Paths.get( path.trim() ) );
+			}
+		}
+	}
+
+	@PreDestroy
+	private void destroy() throws IOException {
+		compactor.shutdown();
+
+		for ( FileChannel channel : segments.values() ) {
+			channel.close();
+		}
+	}
+
+	private void append( HashCode hash, byte[] blob ) throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			if ( index.containsKey( hash ) ) {
+				return;
+			}
+
+			Map.Entry<Integer, FileChannel> last = segments.lastEntry();
+
+			if ( last == null || last.getValue().size() + HEADER + blob.length > size ) {
+				last = open( last == null ? 0 : last.getKey() + 1 );
+			}
+
+			FileChannel channel = last.getValue();
+
+			long offset = channel.size();
+
+			ByteBuffer buffer = ByteBuffer.allocate( HEADER + blob.length ).put( hash.asBytes() ).putInt( blob.length ).put( blob );
+
+			buffer.flip();
+
+			while ( buffer.hasRemaining() ) {
+				channel.write( buffer, offset + buffer.position() );
+			}
+
+			index.put( hash, new Location( hash, last.getKey(), offset, blob.length ) );
+
+			live.addAndGet( HEADER + blob.length );
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void compact() { // 只把索引中的紀錄複製到新的segment, 複製期間仍可讀寫; 最後在write lock下補上期間新增的紀錄, 換上新segment後刪除舊檔
+		List<Map.Entry<Path, FileChannel>> outputs = new ArrayList<>();
+
+		Map<HashCode, Location[]> copied = new HashMap<>(); // 原本的位置, 新的位置(segment為outputs的索引)
+
+		long before = bytes();
+
+		try {
+			copy( index.values(), outputs, copied ); // 舊segment只會append, 換上新segment前不會關閉
+
+			lock.writeLock().lock();
+
+			try {
+				copy( index.values().stream().filter( i -> !copied.containsKey( i.hash ) || copied.get( i.hash )[ 0 ] != i ).collect( Collectors.toList() ), outputs, copied ); // 複製期間新增或重寫的
+
+				int base = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+
+				for ( int i = 0; i < outputs.size(); i++ ) { // 先換成正式檔名, 中斷時重啟仍可讀到全部紀錄
+					outputs.get( i ).getValue().force( true );
+
+					Files.move( outputs.get( i ).getKey(), path( base + i ) );
+				}
+
+				List<Map.Entry<Integer, FileChannel>> old = new ArrayList<>( segments.entrySet() );
+
+				segments.clear();
+
+				for ( int i = 0; i < outputs.size(); i++ ) {
+					segments.put( base + i, outputs.get( i ).getValue() );
+				}
+
+				outputs.clear();
+
+				copied.forEach( ( hash, locations ) -> {
+					if ( index.get( hash ) == locations[ 0 ] ) { // 複製後才被移除的不再放回
+						index.put( hash, new Location( hash, base + locations[ 1 ].segment, locations[ 1 ].offset, locations[ 1 ].length ) );
+					}
+				} );
+
+				for ( Map.Entry<Integer, FileChannel> entry : old ) {
+					entry.getValue().close();
+
+					Files.delete( path( entry.getKey() ) );
+				}
+
+			} finally {
+				lock.writeLock().unlock();
+			}
+
+			log.info( "Compacted: {} -> {} bytes, records: {}", before, bytes(), index.size() );
+
+			if ( bytes() > max ) {
+				log.warn( "Store over limit with live records only: {} bytes, max: {}", bytes(), max );
+			}
+
+		} catch ( IOException | RuntimeException e ) { // 尚未換上的暫存檔直接刪除, 索引及segment維持原狀
+			log.error( "Compaction failed", e );
+
+			for ( Map.Entry<Path, FileChannel> output : outputs ) {
+				try {
+					output.getValue().close();
+
+					Files.deleteIfExists( output.getKey() );
+
+				} catch ( IOException ex ) {
+					log.error( "Delete failed: " + output.getKey(), ex );
+
+				}
+			}
+		}
+	}
+
+	private void copy( Collection<Location> locations, List<Map.Entry<Path, FileChannel>> outputs, Map<HashCode, Location[]> copied ) throws IOException {
+		for ( Location location : locations ) {
+			FileChannel source = segments.get( location.segment );
+
+			if ( source == null ) {
+				continue;
+			}
+
+			byte[] record = read( source, location.offset, HEADER + location.length );
+
+			Map.Entry<Path, FileChannel> output = outputs.isEmpty() ? null : outputs.get( outputs.size() - 1 );
+
+			if ( output == null || output.getValue().size() + record.length > size ) {
+				Path path = Files.createTempFile( Paths.get( dir ), "compact", TEMP );
+
+				outputs.add( output = new AbstractMap.SimpleImmutableEntry<>( path, FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) );
+			}
+
+			FileChannel channel = output.getValue();
+
+			long offset = channel.size();
+
+			ByteBuffer buffer = ByteBuffer.wrap( record );
+
+			while ( buffer.hasRemaining() ) {
+				channel.write( buffer, offset + buffer.position() );
+			}
+
+			copied.put( location.hash, new Location[] { location, new Location( location.hash, outputs.size() - 1, offset, location.length ) } );
+		}
+	}
+
+	private Map.Entry<Integer, FileChannel> open( int segment ) throws IOException {
+		FileChannel channel = FileChannel.open( path( segment ), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+
+		segments.put( segment, channel );
+
+		return segments.lastEntry();
+	}
+
+	private long scan( FileChannel channel, BiConsumer<HashCode, Location> consumer ) throws IOException { // 回傳最後一筆完整紀錄的結尾
+		long offset = 0, size = channel.size();
+
+		while ( offset + HEADER <= size ) {
+			ByteBuffer header = ByteBuffer.wrap( read( channel, offset, HEADER ) );
+
+			byte[] hash = new byte[ HASH ];
+
+			header.get( hash );
+
+			int length = header.getInt();
+
+			if ( length < 0 || offset + HEADER + length > size ) {
+				break;
+			}
+
+			HashCode code = HashCode.fromBytes( hash );
+
+			consumer.accept( code, new Location( code, -1, offset, length ) );
+
+			offset += HEADER + length;
+		}
+
+		return offset;
+	}
+
+	private byte[] read( FileChannel channel, long position, int length ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( length );
+
+		while ( buffer.hasRemaining() ) {
+			if ( channel.read( buffer, position + buffer.position() ) < 0 ) {
+				throw new IOException( "Unexpected end of segment" );
+			}
+		}
+
+		return buffer.array();
+	}
+
+	private byte[] gzip( String value ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try ( OutputStream output = new GZIPOutputStream( bytes ) ) {
+			output.write( value.getBytes( StandardCharsets.UTF_8 ) );
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private HashCode hash( String key ) {
+		return Hashing.sha256().hashString( key, StandardCharsets.UTF_8 );
+	}
+
+	private Path path( int segment ) {
+		return Paths.get( dir, String.format( SEGMENT, segment ) );
+	}
+
+	private long bytes() {
+		return segments.values().stream().mapToLong( i -> {
+			try {
+				return i.size();
+
+			} catch ( IOException e ) {
+				return 0;
+			}
+		} ).sum();
+	}
+
+	private static class Location {
+		private final HashCode hash;
+
+		private final int segment, length;
+
+		private final long offset;
+
+		private Location( HashCode hash, int segment, long offset, int length ) {
+			this.hash = hash;
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
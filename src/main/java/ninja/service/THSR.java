@@ -4,21 +4,42 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import ninja.util.Cast;
+import ninja.util.Gson;
 
 @Service
 public class THSR extends PTX {
-	private static final String PATH = "Rail/THSR/";
+	private static final String PATH = "Rail/THSR/", FARE = "ODFare/%s/to/%s";
+
+	@Autowired
+	private Store store;
 
 	public List<Map<String, ?>> call( String path ) {
 		return call( path, BooleanUtils.toStringTrueFalse( true ) );
 	}
 
+	public List<Map<String, ?>> fare( String start, String end ) { // 票價公告後不會變動
+		String path = String.format( FARE, start, end ), json = store.get( PATH + path );
+
+		if ( json != null ) {
+			return Gson.list( json );
+		}
+
+		List<Map<String, ?>> fare = call( path );
+
+		if ( !fare.isEmpty() ) {
+			store.put( PATH + path, Gson.json( fare ) );
+		}
+
+		return fare;
+	}
+
 	@Override
-	public List<Map<String, ?>> call( String path, String filter, String... query ) {
-		return super.call( PATH + path, filter, query );
+	protected String path( String path ) {
+		return PATH + path;
 	}
 
 	@Override
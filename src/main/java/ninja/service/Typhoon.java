@@ -0,0 +1,161 @@
+package ninja.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.collect.Iterables;
+
+import ninja.util.Cast;
+import ninja.util.Fork;
+import ninja.util.Gson;
+import ninja.util.Utils;
+
+@Service
+public class Typhoon {
+	private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
+	private static final String WARN_URL = "https://www.cwb.gov.tw/Data/js/warn/Warning_Content.js", TY_NEWS = "'TY_NEWS'";
+
+	private static final String DATA_URL = "https://www.cwb.gov.tw/Data/js/typhoon/TY_NEWS-Data.js";
+
+	private static final String TIME_REGEX = "var TY_DataTime = '(.+?)';", COUNT_REGEX = "var TY_COUNT = \\[(.+?)];";
+
+	private static final String IMG_JSON = "PTA_IMGS_%s_zhtw.json", AREA_JSON = "WSP-AREA_%s_WHOLE-DURATION.json";
+
+	private static final String NEWS_URL = "https://www.cwb.gov.tw/Data/typhoon/TY_NEWS/";
+
+	private static final Map<String, String> AREAS = new LinkedHashMap<>();
+
+	static {
+		AREAS.put( "基隆市", "Keelung" );
+		AREAS.put( "臺北市", "TaipeiCity" );
+		AREAS.put( "新北市", "NewTaipei" );
+		AREAS.put( "桃園市", "Taoyuan" );
+		AREAS.put( "新竹市", "HsinchuCity" );
+		AREAS.put( "新竹縣", "HsinchuCounty" );
+		AREAS.put( "苗栗縣", "Miaoli" );
+		AREAS.put( "臺中市", "Taichung" );
+		AREAS.put( "彰化縣", "Changhua" );
+		AREAS.put( "南投縣", "Nantou" );
+		AREAS.put( "雲林縣", "Yunlin" );
+		AREAS.put( "嘉義市", "ChiayiCity" );
+		AREAS.put( "嘉義縣", "ChiayiCounty" );
+		AREAS.put( "臺南市", "Tainan" );
+		AREAS.put( "高雄市", "Kaohsiung" );
+		AREAS.put( "屏東縣", "Pingtung" );
+		AREAS.put( "恆春", "Hengchun" );
+		AREAS.put( "宜蘭縣", "Yilan" );
+		AREAS.put( "花蓮縣", "Hualien" );
+		AREAS.put( "臺東縣", "Taitung" );
+		AREAS.put( "綠島", "Ludao" );
+		AREAS.put( "蘭嶼", "Lanyu" );
+		AREAS.put( "澎湖縣", "Penghu" );
+		AREAS.put( "金門縣", "Kinmen" );
+		AREAS.put( "連江縣", "LienChiang" );
+	}
+
+	@Autowired
+	private Store store;
+
+	private volatile Bulletin bulletin;
+
+	public Set<String> areas() {
+		return AREAS.keySet();
+	}
+
+	public Bulletin call() { // 無颱風消息時回傳null, TY_DataTime未變動時沿用快取不再抓取圖片及侵襲機率
+		if ( !Utils.call( WARN_URL ).contains( TY_NEWS ) ) { // 大部分時間沒有颱風, 有消息時才抓颱風資料
+			return null;
+		}
+
+		String data = Utils.call( DATA_URL ), time = Utils.find( TIME_REGEX, data );
+
+		Bulletin bulletin = this.bulletin;
+
+		return bulletin != null && bulletin.time.equals( time ) ? bulletin : bulletin( time, Utils.find( COUNT_REGEX, data ) );
+	}
+
+	private synchronized Bulletin bulletin( String time, String count ) {
+		if ( bulletin != null && bulletin.time.equals( time ) ) {
+			return bulletin;
+		}
+
+		log.info( "TY_DataTime: {}", time );
+
+		Fork fork = Fork.of();
+
+		CompletableFuture<Map<?, ?>> img = fork.fork( () -> map( IMG_JSON, time, "WHOLE" ) ), area = fork.fork( () -> map( AREA_JSON, time, "AREA" ) );
+
+		String image = url( Iterables.getLast( Cast.list( fork.join( img ), "WHOLE" ) ) );
+
+		Map<?, ?> prs = Cast.map( fork.join( area ), "AREA" );
+
+		Map<String, Integer> pr = new LinkedHashMap<>();
+
+		AREAS.forEach( ( k, v ) -> {
+			Double value = Cast.dble( prs, v );
+
+			if ( value != null ) {
+				pr.put( k, value.intValue() );
+			}
+		} );
+
+		return bulletin = new Bulletin( time, count, image, pr );
+	}
+
+	private Map<?, ?> map( String path, String time, String key ) { // 同一個TY_DataTime的資料不會再變動, key有內容才存, 避免永久保存錯誤頁面
+		String url = url( String.format( path, time ) ), json = store.get( url ), body = json == null ? Utils.call( url ) : json;
+
+		Map<?, ?> map = Gson.from( body, Map.class );
+
+		Object value = map == null ? null : map.get( key );
+
+		if ( json == null && ( value instanceof List && !( ( List<?> ) value ).isEmpty() || value instanceof Map && !( ( Map<?, ?> ) value ).isEmpty() ) ) {
+			store.put( url, body );
+		}
+
+		return map;
+	}
+
+	private String url( Object path ) {
+		return NEWS_URL + path;
+	}
+
+	public static class Bulletin {
+		private final String time, count, image;
+
+		private final Map<String, Integer> pr;
+
+		private Bulletin( String time, String count, String image, Map<String, Integer> pr ) {
+			this.time = time;
+			this.count = count;
+			this.image = image;
+			this.pr = Collections.unmodifiableMap( pr );
+		}
+
+		public String getTime() {
+			return time;
+		}
+
+		public String getCount() {
+			return count;
+		}
+
+		public String getImage() {
+			return image;
+		}
+
+		public Integer pr( String area ) {
+			return pr.get( area );
+		}
+	}
+}
@@ -1,24 +1,124 @@
 package ninja.service;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import net.gpedro.integrations.slack.SlackMessage;
 import ninja.util.Gson;
 import ninja.util.Utils;
 
 @Service
 public class VAS extends Data<Set<String>> {
+    private final Logger log = LoggerFactory.getLogger( this.getClass() );
+
     private static final String VAS_URL = "https://patno.ndmctsgh.edu.tw/wcm/vas";
 
+    private static final String BRANCH = "Branch", DIVISION = "Division", ROOM = "Room", CURRENT = "Current";
+
+    private static final long EXPIRY = 25; // response_url 30分鐘後失效
+
+    @Autowired
+    private Outbox outbox;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile Map<String, List<Map<String, String>>> index = Collections.emptyMap(), previous = Collections.emptyMap();
+
     public List<Map<String, String>> call() {
         return Gson.list( Utils.call( VAS_URL ) );
     }
 
+    public List<Map<String, String>> rooms( String branch, String division ) {
+        if ( index.isEmpty() ) {
+            poll();
+        }
+
+        return index.getOrDefault( key( branch, division ), Collections.emptyList() );
+    }
+
+    public void subscribe( String branch, String division, String room, int number, String url ) {
+        subscriptions.add( new Subscription( branch, division, room, number, url ) );
+    }
+
+    @Scheduled( fixedDelayString = "${vas.poll.delay:30000}" )
+    public void poll() {
+        List<Map<String, String>> data;
+
+        try {
+            data = call();
+
+        } catch ( RuntimeException e ) {
+            log.error( StringUtils.EMPTY, e );
+
+            return;
+        }
+
+        previous = index;
+
+        index = data.stream().collect( Collectors.groupingBy( i -> key( i.get( BRANCH ), i.get( DIVISION ) ) ) );
+
+        subscriptions.forEach( this::check );
+    }
+
     @Override
     void init( Map<String, Set<String>> data ) {
-        data.putAll( call().stream().collect( Collectors.groupingBy( i -> i.get( "Branch" ), Collectors.mapping( i -> i.get( "Division" ), Collectors.toSet() ) ) ) );
+        data.putAll( call().stream().collect( Collectors.groupingBy( i -> i.get( BRANCH ), Collectors.mapping( i -> i.get( DIVISION ), Collectors.toSet() ) ) ) );
+    }
+
+    private void check( Subscription subscription ) {
+        String key = key( subscription.branch, subscription.division ), current = current( index, key, subscription.room ), text;
+
+        if ( Instant.now().isAfter( subscription.time.plus( EXPIRY, ChronoUnit.MINUTES ) ) ) {
+            text = String.format( "已停止追蹤%s診間, 目前看診號碼: %s", subscription.room, current );
+
+        } else if ( !Objects.equals( current, current( previous, key, subscription.room ) ) && NumberUtils.toInt( current ) >= subscription.number ) {
+            text = String.format( "%s診間已看診至%s號, 您的號碼: %d", subscription.room, current, subscription.number );
+
+        } else {
+            return;
+        }
+
+        subscriptions.remove( subscription );
+
+        outbox.send( subscription.url, new SlackMessage( text ) );
+    }
+
+    private String current( Map<String, List<Map<String, String>>> index, String key, String room ) {
+        return index.getOrDefault( key, Collections.emptyList() ).stream().filter( i -> room.equals( i.get( ROOM ) ) ).findFirst().map( i -> i.get( CURRENT ) ).orElse( null );
+    }
+
+    private String key( String branch, String division ) {
+        return Utils.spacer( branch, division );
+    }
+
+    private static class Subscription {
+        private final String branch, division, room, url;
+
+        private final int number;
+
+        private final Instant time = Instant.now();
+
+        private Subscription( String branch, String division, String room, int number, String url ) {
+            this.branch = branch;
+            this.division = division;
+            this.room = room;
+            this.number = number;
+            this.url = url;
+        }
     }
-}
\ No newline at end of file
+}
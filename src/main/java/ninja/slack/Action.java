@@ -48,10 +48,18 @@ public class Action extends SlackAction {
 	}
 
 	@Override
-	public JsonObject toJson() {
-		JsonObject data = Gson.object( this );
+	public JsonObject toJson() { // 只在super的結果上補上自己的欄位, 不再另外序列化整個物件
+		JsonObject data = super.toJson();
 
-		super.toJson().entrySet().forEach( i -> data.add( i.getKey(), i.getValue() ) );
+		if ( confirm != null ) {
+			data.add( "confirm", Gson.tree( confirm ) );
+		}
+
+		data.add( "options", Gson.tree( options ) );
+
+		if ( selected != null ) {
+			data.add( "selected_options", Gson.tree( selected ) );
+		}
 
 		return data;
 	}
@@ -1,8 +1,13 @@
 package ninja.slack;
 
+import com.google.gson.annotations.SerializedName;
+
 public class Callback {
 	private String token, challenge, type;
 
+	@SerializedName( "event_id" )
+	private String id;
+
 	private Event event;
 
 	public String getToken() {
@@ -29,6 +34,14 @@ public class Callback {
 		this.type = type;
 	}
 
+	public String getId() {
+		return id;
+	}
+
+	public void setId( String id ) {
+		this.id = id;
+	}
+
 	public Event getEvent() {
 		return event;
 	}
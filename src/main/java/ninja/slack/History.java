@@ -2,10 +2,18 @@ package ninja.slack;
 
 import java.util.List;
 
+import com.google.gson.annotations.SerializedName;
+
 public class History {
-	// ok, has_more, error不放入
+	// ok, error不放入
 	private List<Event> messages;
 
+	@SerializedName( "has_more" )
+	private boolean more;
+
+	@SerializedName( "response_metadata" )
+	private Metadata metadata;
+
 	public List<Event> getMessages() {
 		return messages;
 	}
@@ -13,4 +21,21 @@ public class History {
 	public void setMessages( List<Event> messages ) {
 		this.messages = messages;
 	}
+
+	public boolean isMore() {
+		return more;
+	}
+
+	public void setMore( boolean more ) {
+		this.more = more;
+	}
+
+	public String getCursor() {
+		return metadata == null ? null : metadata.cursor;
+	}
+
+	private static class Metadata {
+		@SerializedName( "next_cursor" )
+		private String cursor;
+	}
 }
\ No newline at end of file
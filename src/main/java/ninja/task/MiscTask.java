@@ -2,19 +2,27 @@ package ninja.task;
 
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.google.common.cache.CacheStats;
 
 import ninja.consts.Zone;
+import ninja.service.Dict;
 import ninja.util.Cast;
 
 @Service
 public class MiscTask extends Task {
 	private static final String TEMPLATE = "*Cloudinary*\nMonthly plan: %.0f credits\nUsed in last 30 days: %s credits\n";
 
+	private static final String DICT_TEMPLATE = "*Dict Cache*\nSize: %d, hit rate: %.1f%% (%d / %d), eviction: %d";
+
+	@Autowired
+	private Dict dict;
+
 	@Scheduled( cron = "0 30 23 * * *", zone = Zone.TAIPEI )
 	@Override
 	public void exec() {
@@ -25,7 +33,13 @@ public class MiscTask extends Task {
 
 		} catch ( Exception e ) {
 			throw new RuntimeException( e );
-
 		}
 	}
+
+	@Scheduled( cron = "0 35 23 * * *", zone = Zone.TAIPEI )
+	public void dict() {
+		CacheStats stats = dict.stats();
+
+		call( String.format( DICT_TEMPLATE, dict.size(), stats.hitRate() * 100, stats.hitCount(), stats.requestCount(), stats.evictionCount() ) );
+	}
 }
\ No newline at end of file
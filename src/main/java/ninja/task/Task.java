@@ -1,18 +1,22 @@
 package ninja.task;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import magic.service.IService;
 import net.gpedro.integrations.slack.SlackMessage;
-import ninja.util.Utils;
+import ninja.service.Outbox;
 
 public abstract class Task implements IService {
 	protected static final String COMMAND = "scheduled-task";
 
+	@Autowired
+	protected Outbox outbox;
+
 	@Value( "${slack.webhook.url:}" )
 	protected String url;
 
 	protected void call( String text ) {
-		Utils.call( url, new SlackMessage( text ) );
+		outbox.send( url, new SlackMessage( text ) );
 	}
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package ninja.util;
+
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class CommandExecutor implements Executor, DisposableBean { // 依目前請求的command分流, 有專屬pool的指令不與同一workload的其他指令互搶
+	private final Executor shared;
+
+	private final Function<String, Executor> commands;
+
+	public CommandExecutor( Executor shared, Function<String, Executor> commands ) { // commands: 沒有專屬pool時回傳null
+		this.shared = shared;
+		this.commands = commands;
+	}
+
+	@Override
+	public void execute( Runnable task ) {
+		String command = command();
+
+		Executor executor = command == null ? null : commands.apply( command );
+
+		( executor == null ? shared : executor ).execute( task );
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if ( shared instanceof DisposableBean ) {
+			( ( DisposableBean ) shared ).destroy();
+		}
+	}
+
+	private String command() { // @Async攔截時仍在request執行緒; 排程等非請求的呼叫為null
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+		if ( !( attributes instanceof ServletRequestAttributes ) ) {
+			return null;
+		}
+
+		HttpServletRequest request = ( ( ServletRequestAttributes ) attributes ).getRequest();
+
+		return StringUtils.stripToNull( StringUtils.removeStart( request.getParameter( "command" ), "/" ) );
+	}
+}
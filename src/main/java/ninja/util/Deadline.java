@@ -0,0 +1,85 @@
+package ninja.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class Deadline { // 指令剩餘的時間, 收到指令時設定, 經TaskDecorator帶到@Async及Fork的執行緒
+	private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+	public static void start( long timeout, TimeUnit unit ) {
+		DEADLINE.set( System.nanoTime() + unit.toNanos( timeout ) );
+	}
+
+	public static void clear() {
+		DEADLINE.remove();
+	}
+
+	public static long remaining( TimeUnit unit ) { // 未設定時為Long.MAX_VALUE
+		Long deadline = DEADLINE.get();
+
+		return deadline == null ? Long.MAX_VALUE : unit.convert( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+	}
+
+	public static boolean expired() {
+		Long deadline = DEADLINE.get();
+
+		return deadline != null && System.nanoTime() - deadline >= 0;
+	}
+
+	public static void check() {
+		if ( expired() ) {
+			throw new ExceededException();
+		}
+	}
+
+	public static Runnable wrap( Runnable runnable ) {
+		Long deadline = DEADLINE.get();
+
+		return () -> {
+			Long previous = DEADLINE.get();
+
+			set( deadline );
+
+			try {
+				runnable.run();
+
+			} finally {
+				set( previous );
+			}
+		};
+	}
+
+	public static <T> Supplier<T> wrap( Supplier<T> supplier ) {
+		Long deadline = DEADLINE.get();
+
+		return () -> {
+			Long previous = DEADLINE.get();
+
+			set( deadline );
+
+			try {
+				return supplier.get();
+
+			} finally {
+				set( previous );
+			}
+		};
+	}
+
+	private static void set( Long deadline ) {
+		if ( deadline == null ) {
+			DEADLINE.remove();
+
+		} else {
+			DEADLINE.set( deadline );
+		}
+	}
+
+	public static class ExceededException extends IllegalStateException {
+		private static final long serialVersionUID = 1L;
+
+		public ExceededException() {
+			super( "Deadline exceeded" );
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package ninja.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Metrics;
+import ninja.aop.CommandCache;
+
+public class Fork { // 同一指令內互不相依的上游呼叫同時發出, 共用一個deadline, 任一失敗或逾時即取消其餘
+	private static final int THREADS = 20;
+
+	private static final ExecutorService EXECUTOR = new ThreadPoolExecutor( 0, THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), new ThreadFactoryBuilder().setNameFormat( "fork-%d" ).setDaemon( true ).build(), ( r, executor ) -> {
+		Metrics.counter( "executor.rejected", "name", "fork" ).increment();
+
+		r.run(); // 執行緒已滿時由呼叫端自己執行, 退化為依序呼叫但不會失敗
+	} );
+
+	private static final long TIMEOUT = 30;
+
+	private final List<CompletableFuture<?>> futures = new CopyOnWriteArrayList<>();
+
+	private final long deadline;
+
+	private Fork( long timeout, TimeUnit unit ) {
+		this.deadline = System.nanoTime() + Math.min( unit.toNanos( timeout ), Deadline.remaining( TimeUnit.NANOSECONDS ) ); // 不超過指令的deadline
+	}
+
+	public static Fork of() {
+		return of( TIMEOUT, TimeUnit.SECONDS );
+	}
+
+	public static Fork of( long timeout, TimeUnit unit ) {
+		return new Fork( timeout, unit );
+	}
+
+	public <T> CompletableFuture<T> fork( Supplier<T> supplier ) {
+		CompletableFuture<T> future = CompletableFuture.supplyAsync( CommandCache.wrap( Deadline.wrap( supplier ) ), EXECUTOR ); // 上游改用舊資料時, 指令結果不快取
+
+		futures.add( future );
+
+		return future;
+	}
+
+	public <T> T join( CompletableFuture<T> future ) {
+		try {
+			return future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+
+		} catch ( ExecutionException e ) {
+			cancel();
+
+			throw e.getCause() instanceof RuntimeException ? ( RuntimeException ) e.getCause() : new IllegalStateException( e.getCause() );
+
+		} catch ( TimeoutException e ) {
+			cancel();
+
+			throw new Deadline.ExceededException();
+
+		} catch ( InterruptedException e ) {
+			cancel();
+
+			Thread.currentThread().interrupt();
+
+			throw new IllegalStateException( e );
+		}
+	}
+
+	public <T> T join( CompletableFuture<T> future, T other ) { // 逾時時回傳other, 讓指令先回覆已取得的部分
+		try {
+			return join( future );
+
+		} catch ( Deadline.ExceededException e ) {
+			return other;
+		}
+	}
+
+	public void cancel() { // 尚未完成的呼叫不再等待, 結果直接丟棄
+		futures.forEach( i -> i.cancel( true ) );
+	}
+}
@@ -1,8 +1,18 @@
 package ninja.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
+
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
@@ -13,6 +23,10 @@ public class Gson {
 		return GSON.fromJson( json, clazz );
 	}
 
+	public static <T> T from( byte[] json, Class<T> clazz ) {
+		return GSON.fromJson( new InputStreamReader( new ByteArrayInputStream( json ), StandardCharsets.UTF_8 ), clazz );
+	}
+
 	public static <T> T from( String json, Type type ) {
 		return GSON.fromJson( json, type );
 	}
@@ -26,7 +40,25 @@ public class Gson {
 		return GSON.toJson( src );
 	}
 
+	public static HttpEntity entity( Object src ) { // 直接寫入request stream, 不產生中間字串
+		EntityTemplate entity = new EntityTemplate( out -> {
+			Writer writer = new OutputStreamWriter( out, StandardCharsets.UTF_8 );
+
+			GSON.toJson( src, writer );
+
+			writer.flush();
+		} );
+
+		entity.setContentType( ContentType.APPLICATION_JSON.toString() );
+
+		return entity;
+	}
+
 	public static JsonObject object( Object src ) {
-		return GSON.toJsonTree( src ).getAsJsonObject();
+		return tree( src ).getAsJsonObject();
+	}
+
+	public static JsonElement tree( Object src ) {
+		return GSON.toJsonTree( src );
 	}
 }
\ No newline at end of file
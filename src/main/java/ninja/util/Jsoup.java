@@ -1,9 +1,9 @@
 package ninja.util;
 
-import java.io.IOException;
 import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
@@ -12,14 +12,8 @@ import org.slf4j.LoggerFactory;
 public class Jsoup {
 	private static final Logger log = LoggerFactory.getLogger( Jsoup.class );
 
-	public static Elements select( String url, String selector ) {
-		try {
-			return org.jsoup.Jsoup.connect( url ).get().select( selector );
-
-		} catch ( IOException e ) {
-			throw new RuntimeException( e );
-
-		}
+	public static Elements select( String url, String selector ) { // 頁面內容變動不頻繁, 上游失敗時可改用一小時內上次取得的頁面
+		return Upstream.call( url, url, () -> org.jsoup.Jsoup.connect( url ).timeout( Upstream.timeout( url ) ).get(), Document::outerHtml, i -> org.jsoup.Jsoup.parse( i, url ) ).select( selector );
 	}
 
 	public static String href( Element element ) {
@@ -2,15 +2,54 @@ package ninja.util;
 
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.HmacAlgorithms;
 
 public class Signature {
+	private static final Map<HmacAlgorithms, ThreadLocal<Keyed>> MACS = new EnumMap<>( HmacAlgorithms.class );
+
+	static {
+		for ( HmacAlgorithms algorithms : HmacAlgorithms.values() ) {
+			MACS.put( algorithms, new ThreadLocal<>() );
+		}
+	}
+
 	public static byte[] hmac( String data, String secret, HmacAlgorithms algorithms ) {
+		return mac( secret, algorithms ).doFinal( data.getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	public static Mac mac( String secret, HmacAlgorithms algorithms ) { // 每個執行緒每種演算法重用一個已init的Mac, doFinal後會自動reset; secret不同時才重新init
+		ThreadLocal<Keyed> local = MACS.get( algorithms );
+
+		Keyed keyed = local.get();
+
+		if ( keyed == null || !keyed.secret.equals( secret ) ) {
+			local.set( keyed = new Keyed( secret, init( secret, algorithms ) ) );
+		}
+
+		return keyed.mac;
+	}
+
+	public static boolean equals( String hex, byte[] digest ) { // constant-time比較
+		try {
+			return MessageDigest.isEqual( Hex.decodeHex( hex.toCharArray() ), digest );
+
+		} catch ( DecoderException e ) {
+			return false;
+
+		}
+	}
+
+	private static Mac init( String secret, HmacAlgorithms algorithms ) {
 		try {
 			String algorithm = algorithms.toString();
 
@@ -18,11 +57,22 @@ public class Signature {
 
 			mac.init( new SecretKeySpec( secret.getBytes( StandardCharsets.UTF_8 ), algorithm ) );
 
-			return mac.doFinal( data.getBytes( StandardCharsets.UTF_8 ) );
+			return mac;
 
 		} catch ( NoSuchAlgorithmException | InvalidKeyException e ) {
 			throw new RuntimeException( e );
 
 		}
 	}
+
+	private static class Keyed {
+		private final String secret;
+
+		private final Mac mac;
+
+		private Keyed( String secret, Mac mac ) {
+			this.secret = secret;
+			this.mac = mac;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package ninja.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+public class Threads {
+	private static final Method OF_VIRTUAL, NAME, FACTORY;
+
+	static { // 以reflection取得JDK 21的Thread.ofVirtual(), 舊版JDK為null
+		Method ofVirtual = null, name = null, factory = null;
+
+		try {
+			Class<?> builder = Class.forName( "java.lang.Thread$Builder" );
+
+			ofVirtual = Thread.class.getMethod( "ofVirtual" );
+			name = builder.getMethod( "name", String.class, long.class );
+			factory = builder.getMethod( "factory" );
+
+			( ( ThreadFactory ) factory.invoke( ofVirtual.invoke( null ) ) ).newThread( () -> {} ); // JDK 19/20未加--enable-preview時會拋出例外, 實際建立一次確認可用
+
+		} catch ( ReflectiveOperationException | RuntimeException | LinkageError e ) {
+			ofVirtual = name = factory = null;
+		}
+
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		FACTORY = factory;
+	}
+
+	public static boolean virtual() {
+		return OF_VIRTUAL != null;
+	}
+
+	public static ThreadFactory virtual( String prefix ) {
+		if ( !virtual() ) {
+			throw new IllegalStateException( "Virtual threads are not supported: " + System.getProperty( "java.version" ) );
+		}
+
+		try {
+			return ( ThreadFactory ) FACTORY.invoke( NAME.invoke( OF_VIRTUAL.invoke( null ), prefix, 0L ) );
+
+		} catch ( ReflectiveOperationException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+}
@@ -0,0 +1,469 @@
+package ninja.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.fluent.Request;
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import ninja.aop.CommandCache;
+
+public class Upstream { // 每個上游一組circuit breaker及bulkhead, 斷路或滿載時快速失敗, 指定key時可改用上次成功的結果
+	private static final Logger log = LoggerFactory.getLogger( Upstream.class );
+
+	private static final String SLACK = "slack";
+
+	private static final Map<String, String> HOSTS = ImmutableMap.<String, String>builder().put( "ptx.transportdata.tw", "ptx" ).put( "epa.gov.tw", "epa" ).put( "cwb.gov.tw", "cwb" ).put( "atmovies.com.tw", "atmovies" ).put( "metro.taipei", "metro" ).put( "nasa.gov", "nasa" ).put( "grammarbot.io", "grammarbot" ).put( "slack.com", SLACK ).build();
+
+	private static final Map<String, Upstream> UPSTREAMS = new ConcurrentHashMap<>();
+
+	private static final Cache<String, String> LAST = CacheBuilder.newBuilder().maximumWeight( 16 * 1024 * 1024 ).weigher( ( String key, String value ) -> 2 * ( key.length() + value.length() ) ).expireAfterWrite( 1, TimeUnit.HOURS ).build(); // 只存序列化後的字串
+
+	private static final int THRESHOLD = 5, PERMITS = 10;
+
+	private static final long OPEN_MILLIS = TimeUnit.SECONDS.toMillis( 30 );
+
+	private static final int WINDOW = 200, SAMPLES = 20, TIMEOUT = 30000, MIN_TIMEOUT = 3000, MAX_TIMEOUT = 60000;
+
+	private static final int BUDGET = 100, RATIO = 10; // 避險請求最多為一般請求的1/RATIO, 最多累積BUDGET次
+
+	private static int budget;
+
+	private enum State {
+		CLOSED, OPEN, HALF_OPEN;
+	}
+
+	private final String name;
+
+	private final Semaphore permits = new Semaphore( PERMITS );
+
+	private final ExecutorService executor; // 每個呼叫最多同時佔用兩條(原本及避險), 與bulkhead一致
+
+	private final long[] latencies = new long[ WINDOW ], sorted = new long[ WINDOW ]; // sorted: 依大小排列的同一批樣本, 計算百分位數時不需複製排序
+
+	private State state = State.CLOSED;
+
+	private int failures, index, count;
+
+	private long until;
+
+	private Upstream( String name ) {
+		this.name = name;
+
+		executor = new ThreadPoolExecutor( 0, PERMITS * 2, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), new ThreadFactoryBuilder().setNameFormat( "hedge-" + name + "-%d" ).setDaemon( true ).build(), new ThreadPoolExecutor.CallerRunsPolicy() ); // 被中止的請求尚未結束時, 由呼叫端自己執行
+
+		Metrics.gauge( "upstream.state", Tags.of( "name", name ), this, i -> i.state().ordinal() );
+		Metrics.gauge( "upstream.active", Tags.of( "name", name ), permits, i -> PERMITS - i.availablePermits() );
+		Metrics.gauge( "upstream.timeout", Tags.of( "name", name ), this, Upstream::timeout );
+	}
+
+	public static <T> T call( String uri, Callable<T> callable ) {
+		return call( uri, null, callable, null, null );
+	}
+
+	public static <T> T call( String uri, String key, Callable<T> callable, Function<T, String> write, Function<String, T> read ) { // 只用於可容忍舊資料的呼叫(例如爬取的頁面), 上游失敗時回傳該key一小時內上次成功的結果
+		Upstream upstream = upstream( uri );
+
+		return upstream.execute( upstream.idempotent() ? key : null, () -> upstream.time( callable ), write, read );
+	}
+
+	public static String get( String uri, Supplier<Request> request ) { // 冪等GET, 超過p95仍未回應時再送一次, 取先回應者; 多為即時資料, 失敗時不回傳舊結果
+		Upstream upstream = upstream( uri );
+
+		return upstream.idempotent() ? upstream.execute( null, () -> upstream.hedge( request ), null, null ) : call( uri, () -> magic.util.Utils.getEntityAsString( request.get(), upstream.limit() ) );
+	}
+
+	public static <T> CompletableFuture<T> async( String uri, Function<Integer, CompletableFuture<T>> function ) { // 非阻塞呼叫, 同樣經過斷路, bulkhead及deadline檢查, 完成時記錄結果; function的參數為timeout
+		return upstream( uri ).submit( function );
+	}
+
+	public static int timeout( String uri ) {
+		return upstream( uri ).limit();
+	}
+
+	public static String name( String uri ) {
+		String host = StringUtils.defaultString( URI.create( uri ).getHost() );
+
+		return HOSTS.entrySet().stream().filter( i -> host.endsWith( i.getKey() ) ).map( Map.Entry::getValue ).findFirst().orElse( host );
+	}
+
+	private static Upstream upstream( String uri ) {
+		return UPSTREAMS.computeIfAbsent( name( uri ), Upstream::new );
+	}
+
+	private static synchronized void earn() {
+		budget = Math.min( budget + 1, BUDGET * RATIO );
+	}
+
+	private static synchronized boolean spend() {
+		if ( budget < RATIO ) {
+			return false;
+		}
+
+		budget -= RATIO;
+
+		return true;
+	}
+
+	private boolean idempotent() { // Slack呼叫有副作用, 不重送也不回傳舊結果; 也不受指令deadline限制, 才能送出逾時回覆
+		return !SLACK.equals( name );
+	}
+
+	private <T> T execute( String key, Callable<T> callable, Function<T, String> write, Function<String, T> read ) {
+		if ( idempotent() && Deadline.expired() ) { // 回覆已無意義, 不再呼叫上游
+			return fallback( key, read, "deadline", new Deadline.ExceededException() );
+		}
+
+		if ( !acquire() ) {
+			return fallback( key, read, "open", new IllegalStateException( "Circuit open: " + name ) );
+		}
+
+		if ( !permits.tryAcquire() ) {
+			release( null );
+
+			return fallback( key, read, "rejected", new RejectedException( name ) );
+		}
+
+		long start = System.nanoTime();
+
+		try {
+			T result = callable.call();
+
+			latency( start, "success" );
+
+			release( true );
+
+			count( "success" );
+
+			if ( key != null && result != null ) {
+				LAST.put( key, write.apply( result ) );
+			}
+
+			return result;
+
+		} catch ( Exception e ) {
+			latency( start, Throwables.getRootCause( e ).getClass().getSimpleName() );
+
+			if ( idempotent() && Deadline.expired() ) { // 因指令逾時而中斷, 不算上游失敗
+				release( null );
+
+				return fallback( key, read, "deadline", e instanceof Deadline.ExceededException ? ( RuntimeException ) e : new Deadline.ExceededException() );
+			}
+
+			RuntimeException ex = e instanceof RuntimeException ? ( RuntimeException ) e : new IllegalStateException( e );
+
+			if ( !failure( e ) ) { // 上游有正常回應(例如輸入有誤的4xx), 不開啟斷路也不回傳舊結果
+				release( true );
+
+				count( "error" );
+
+				throw ex;
+			}
+
+			release( false );
+
+			return fallback( key, read, "failure", ex );
+
+		} finally {
+			permits.release();
+		}
+	}
+
+	private <T> CompletableFuture<T> submit( Function<Integer, CompletableFuture<T>> function ) { // 同execute, 但permit在回應後才釋放; 不回傳舊結果
+		if ( idempotent() && Deadline.expired() ) {
+			return failed( "deadline", new Deadline.ExceededException() );
+		}
+
+		if ( !acquire() ) {
+			return failed( "open", new IllegalStateException( "Circuit open: " + name ) );
+		}
+
+		if ( !permits.tryAcquire() ) {
+			release( null );
+
+			return failed( "rejected", new RejectedException( name ) );
+		}
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+
+		long start = System.nanoTime();
+
+		CompletableFuture<T> call;
+
+		try {
+			call = function.apply( limit() );
+
+		} catch ( RuntimeException e ) {
+			( call = new CompletableFuture<>() ).completeExceptionally( e );
+		}
+
+		call.whenComplete( ( result, e ) -> {
+			permits.release();
+
+			if ( e == null ) {
+				record( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+
+				latency( start, "success" );
+
+				release( true );
+
+				count( "success" );
+
+				future.complete( result );
+
+				return;
+			}
+
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+			latency( start, Throwables.getRootCause( cause ).getClass().getSimpleName() );
+
+			boolean failure = failure( cause );
+
+			release( !failure );
+
+			count( failure ? "failure" : "error" );
+
+			future.completeExceptionally( cause );
+		} );
+
+		return future;
+	}
+
+	private String hedge( Supplier<Request> supplier ) throws Exception {
+		CompletionService<String> service = new ExecutorCompletionService<>( executor );
+
+		Map<Future<String>, Request> attempts = new LinkedHashMap<>();
+
+		try {
+			submit( service, attempts, supplier.get() );
+
+			earn();
+
+			long delay = percentile( 0.95 );
+
+			Future<String> future = delay < 0 ? take( service ) : service.poll( Math.min( delay, Deadline.remaining( TimeUnit.MILLISECONDS ) ), TimeUnit.MILLISECONDS );
+
+			if ( future == null ) {
+				if ( spend() ) {
+					count( "hedged" );
+
+					submit( service, attempts, supplier.get() );
+				}
+
+				future = take( service );
+			}
+
+			for ( int i = 1;; i++ ) {
+				try {
+					String result = future.get();
+
+					if ( future != attempts.keySet().iterator().next() ) {
+						count( "hedge_won" );
+					}
+
+					return result;
+
+				} catch ( ExecutionException e ) { // 其中一個失敗時等另一個
+					if ( i >= attempts.size() ) {
+						throw e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e;
+					}
+
+					future = take( service );
+				}
+			}
+
+		} finally { // 中止較慢的一方
+			attempts.forEach( ( future, request ) -> {
+				if ( !future.isDone() ) {
+					request.abort();
+
+					future.cancel( true );
+				}
+			} );
+		}
+	}
+
+	private Future<String> take( CompletionService<String> service ) throws InterruptedException {
+		Future<String> future = service.poll( Deadline.remaining( TimeUnit.MILLISECONDS ), TimeUnit.MILLISECONDS );
+
+		if ( future == null ) {
+			throw new Deadline.ExceededException();
+		}
+
+		return future;
+	}
+
+	private void submit( CompletionService<String> service, Map<Future<String>, Request> attempts, Request request ) {
+		int timeout = limit();
+
+		attempts.put( service.submit( () -> time( () -> magic.util.Utils.getEntityAsString( request, timeout ) ) ), request );
+	}
+
+	private <T> T time( Callable<T> callable ) throws Exception { // 只記錄成功的延遲
+		long start = System.nanoTime();
+
+		T result = callable.call();
+
+		record( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) );
+
+		return result;
+	}
+
+	private synchronized void record( long millis ) { // 移除最舊的樣本後以二分搜尋插入, 維持sorted有序
+		if ( count == WINDOW ) {
+			int i = Arrays.binarySearch( sorted, 0, count, latencies[ index ] );
+
+			System.arraycopy( sorted, i + 1, sorted, i, --count - i );
+		}
+
+		int i = Arrays.binarySearch( sorted, 0, count, millis );
+
+		i = i < 0 ? -i - 1 : i;
+
+		System.arraycopy( sorted, i, sorted, i + 1, count++ - i );
+
+		sorted[ i ] = millis;
+
+		latencies[ index ] = millis;
+
+		index = ( index + 1 ) % WINDOW;
+	}
+
+	private synchronized long percentile( double percentile ) { // 樣本不足時回傳-1
+		return count < SAMPLES ? -1 : sorted[ ( int ) Math.ceil( percentile * count ) - 1 ];
+	}
+
+	private int timeout() { // 依p99推算, 限制在MIN_TIMEOUT與MAX_TIMEOUT之間
+		long p99 = percentile( 0.99 );
+
+		return p99 < 0 ? TIMEOUT : ( int ) Math.max( MIN_TIMEOUT, Math.min( MAX_TIMEOUT, p99 * 4 ) );
+	}
+
+	private int limit() { // 不超過指令剩餘的時間
+		return idempotent() ? ( int ) Math.max( 1, Math.min( timeout(), Deadline.remaining( TimeUnit.MILLISECONDS ) ) ) : timeout();
+	}
+
+	private synchronized boolean acquire() { // OPEN逾時後只放行一個試探請求
+		if ( state == State.OPEN && System.currentTimeMillis() >= until ) {
+			state = State.HALF_OPEN;
+
+			return true;
+		}
+
+		return state == State.CLOSED;
+	}
+
+	private synchronized void release( Boolean success ) { // null: 未實際呼叫, 試探請求需重新放行
+		if ( success == null ) {
+			if ( state == State.HALF_OPEN ) {
+				state = State.OPEN;
+			}
+
+		} else if ( success ) {
+			state = State.CLOSED;
+
+			failures = 0;
+
+		} else if ( state == State.HALF_OPEN || ++failures >= THRESHOLD ) {
+			log.warn( "Circuit open: {}, failures: {}", name, failures );
+
+			state = State.OPEN;
+
+			until = System.currentTimeMillis() + OPEN_MILLIS;
+		}
+	}
+
+	private synchronized State state() {
+		return state;
+	}
+
+	private boolean failure( Throwable e ) { // 只有5xx, 逾時及I/O錯誤算上游失敗
+		for ( Throwable i : Throwables.getCausalChain( e ) ) {
+			if ( i instanceof HttpResponseException ) {
+				return ( ( HttpResponseException ) i ).getStatusCode() >= 500;
+
+			} else if ( i instanceof HttpStatusException ) {
+				return ( ( HttpStatusException ) i ).getStatusCode() >= 500;
+
+			} else if ( i instanceof IOException ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private <T> T fallback( String key, Function<String, T> read, String result, RuntimeException e ) {
+		String last = key == null ? null : LAST.getIfPresent( key );
+
+		count( last == null ? result : "fallback" );
+
+		if ( last == null ) {
+			throw e;
+		}
+
+		log.warn( "Fallback: {}, key: {}, cause: {}", name, key, e.getMessage() );
+
+		CommandCache.discard(); // 指令結果含舊資料, 不可依@Cached快取數小時; Fork的執行緒也會標記到同一個指令
+
+		return read.apply( last );
+	}
+
+	private <T> CompletableFuture<T> failed( String result, RuntimeException e ) {
+		count( result );
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+
+		future.completeExceptionally( e );
+
+		return future;
+	}
+
+	private void latency( long start, String outcome ) { // 含避險重送, 即呼叫端實際等待的時間
+		Timer.builder( "upstream.latency" ).tags( "name", name, "outcome", outcome ).publishPercentileHistogram().register( Metrics.globalRegistry ).record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+	}
+
+	private void count( String result ) {
+		Metrics.counter( "upstream.calls", "name", name, "result", result ).increment();
+	}
+
+	public static class RejectedException extends IllegalStateException { // bulkhead已滿, 未實際呼叫上游, 呼叫端可稍後再送
+		private static final long serialVersionUID = 1L;
+
+		public RejectedException( String name ) {
+			super( "Bulkhead full: " + name );
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package ninja.util;
 
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -10,29 +11,24 @@ import com.google.gson.JsonObject;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.fluent.Request;
-import org.apache.http.entity.ContentType;
 
 import net.gpedro.integrations.slack.SlackMessage;
 
 public class Utils {
-	public static String call( Request request ) {
-		return magic.util.Utils.getEntityAsString( request, 120000 );
-	}
-
-	public static String call( Request request, String body ) {
-		return call( request.bodyString( body, ContentType.APPLICATION_JSON ) );
+	public static String call( String uri, Supplier<Request> request ) { // GET, 每次避險重送都需要新的request
+		return Upstream.get( uri, request );
 	}
 
 	public static String call( String uri ) {
-		return call( Request.Get( uri ) );
+		return call( uri, () -> Request.Get( uri ) );
 	}
 
-	public static String call( String uri, SlackMessage message ) {
+	public static JsonObject json( SlackMessage message ) {
 		JsonObject data = message.prepare();
 
 		data.addProperty( "replace_original", false );
 
-		return call( Request.Post( uri ), data.toString() );
+		return data;
 	}
 
 	public static String spacer( String... elements ) {
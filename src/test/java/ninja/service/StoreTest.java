@@ -0,0 +1,186 @@
+package ninja.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class StoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path dir;
+
+	private Store store;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = folder.newFolder( "store" ).toPath();
+
+		store = open( dir, 1 << 20, "" );
+	}
+
+	@After
+	public void tearDown() {
+		ReflectionTestUtils.invokeMethod( store, "destroy" );
+	}
+
+	@Test
+	public void reopen() {
+		store.put( "a", "1" );
+		store.put( "a", "2" ); // 已存在時不覆寫
+
+		assertEquals( "1", store.get( "a" ) );
+		assertNull( store.get( "b" ) );
+
+		reload();
+
+		assertEquals( "1", store.get( "a" ) );
+	}
+
+	@Test
+	public void truncate() throws IOException { // 寫入中斷留下的不完整紀錄, 重啟時截掉, 之後可繼續寫入
+		store.put( "a", "1" );
+
+		Path segment = dir.resolve( "00000000.seg" );
+
+		long size = Files.size( segment );
+
+		Files.write( segment, new byte[] { 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND );
+
+		reload();
+
+		assertEquals( size, Files.size( segment ) );
+		assertEquals( "1", store.get( "a" ) );
+
+		store.put( "b", "2" );
+
+		reload();
+
+		assertEquals( "1", store.get( "a" ) );
+		assertEquals( "2", store.get( "b" ) );
+	}
+
+	@Test
+	public void preload() throws IOException {
+		Path source = folder.newFolder( "source" ).toPath();
+
+		Store other = open( source, 1 << 20, "" );
+
+		other.put( "a", "1" );
+		other.put( "b", "2" );
+
+		ReflectionTestUtils.invokeMethod( other, "destroy" );
+
+		store.put( "a", "0" ); // 已有的key不會被覆蓋
+
+		ReflectionTestUtils.invokeMethod( store, "destroy" );
+
+		store = open( dir, 1 << 20, source.toString() );
+
+		assertEquals( "0", store.get( "a" ) );
+		assertEquals( "2", store.get( "b" ) );
+
+		reload(); // 匯入的資料寫進自己的segment
+
+		assertEquals( "2", store.get( "b" ) );
+	}
+
+	@Test
+	public void compact() throws IOException { // 只保留索引中的紀錄, 重複的紀錄被回收, 所有key都還在
+		for ( int i = 0; i < 50; i++ ) {
+			store.put( "key" + i, "value" + i );
+		}
+
+		ReflectionTestUtils.invokeMethod( store, "destroy" );
+
+		try ( Stream<Path> stream = Files.list( dir ) ) { // 複製一份segment, 重啟後都是無效的紀錄
+			for ( Path segment : stream.collect( Collectors.toList() ) ) {
+				Files.copy( segment, dir.resolve( String.format( "%08d.seg", 100 + Integer.parseInt( segment.getFileName().toString().substring( 0, 8 ) ) ) ) );
+			}
+		}
+
+		store = open( dir, 1 << 20, "" );
+
+		long before = bytes();
+
+		ReflectionTestUtils.invokeMethod( store, "compact" );
+
+		assertEquals( before / 2, bytes() );
+		assertFalse( Files.exists( dir.resolve( "00000100.seg" ) ) );
+
+		for ( int i = 0; i < 50; i++ ) {
+			assertEquals( "value" + i, store.get( "key" + i ) );
+		}
+
+		store.put( "key50", "value50" );
+
+		reload();
+
+		assertEquals( before / 2 + bytes( "key50" ), bytes() );
+
+		for ( int i = 0; i <= 50; i++ ) {
+			assertEquals( "value" + i, store.get( "key" + i ) );
+		}
+	}
+
+	@Test
+	public void over() { // 超過上限時仍寫入, 不淘汰有效的key
+		ReflectionTestUtils.invokeMethod( store, "destroy" );
+
+		store = open( dir, 100, "" );
+
+		store.put( "a", "1" );
+		store.put( "b", "2" );
+		store.put( "c", "3" );
+
+		reload();
+
+		assertEquals( "1", store.get( "a" ) );
+		assertEquals( "3", store.get( "c" ) );
+	}
+
+	private long bytes() {
+		return ( long ) ReflectionTestUtils.invokeMethod( store, "bytes" );
+	}
+
+	private long bytes( String key ) { // 單筆紀錄: header加上內容
+		Object location = ( ( Map<?, ?> ) ReflectionTestUtils.getField( store, "index" ) ).get( ReflectionTestUtils.invokeMethod( store, "hash", key ) );
+
+		return 36 + ( int ) ReflectionTestUtils.getField( location, "length" );
+	}
+
+	private void reload() {
+		long max = ( long ) ReflectionTestUtils.getField( store, "max" );
+
+		ReflectionTestUtils.invokeMethod( store, "destroy" );
+
+		store = open( dir, max, "" );
+	}
+
+	private Store open( Path dir, long max, String preload ) {
+		Store store = new Store();
+
+		ReflectionTestUtils.setField( store, "dir", dir.toString() );
+		ReflectionTestUtils.setField( store, "size", 1L << 10 );
+		ReflectionTestUtils.setField( store, "max", max );
+		ReflectionTestUtils.setField( store, "preload", preload );
+		ReflectionTestUtils.invokeMethod( store, "init" );
+
+		return store;
+	}
+}